@@ -2,8 +2,11 @@ package me.amiralimollaei.wanderingPlayer.client;
 
 import me.amiralimollaei.wanderingPlayer.client.movement.PathRenderer;
 import me.amiralimollaei.wanderingPlayer.client.movement.PathExecutor;
+import me.amiralimollaei.wanderingPlayer.client.movement.PathService;
+import me.amiralimollaei.wanderingPlayer.client.movement.SearchMetricsHud;
 import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.*;
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
 import net.minecraft.client.MinecraftClient;
@@ -25,20 +28,69 @@ import org.slf4j.LoggerFactory;
 import java.util.List;
 
 public class WanderingPlayerClient implements ClientModInitializer {
-    private static KeyBinding pathfindKey, pathExecuteKey;
+    private static KeyBinding pathfindKey, pathExecuteKey, metricsHudKey;
     public static final String MOD_ID = "wandering-player";
     public static final String MOD_VERSION = "1.0.0-SNAPSHOT";
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
     public static PathExecutor pathExecutor;
     public static PathRenderer pathRenderer;
+    public static PathService pathService;
+    public static WorldChangeTracker worldChangeTracker;
+    public static PassabilityCache passabilityCache;
+    public static ClusterGraph clusterGraph;
+    public static NavMesh navMesh;
+    public static NavMeshBuilder navMeshBuilder;
+    public static PersistentNavCache persistentNavCache;
+    public static PathCache pathCache;
+    public static SearchStatistics searchStatistics;
+    public static SearchMetricsHud searchMetricsHud;
+    // goals further away than this (in blocks) are planned with the hierarchical pathfinder
+    public static final double HIERARCHICAL_PLANNING_DISTANCE = 96;
+    // how goals closer than HIERARCHICAL_PLANNING_DISTANCE are planned
+    public static final Planner PLANNER = Planner.INCREMENTAL;
+
+    public enum Planner {
+        // D* Lite, so the path can be repaired while it's executed
+        INCREMENTAL,
+        // Lazy Theta* raced against A*, Lazy A*, Jump Point Search and the navigation mesh corridor search, the first good
+        // path is taken
+        PORTFOLIO,
+        // A* kept to the corridor of navigation mesh regions between the start and the goal
+        CORRIDOR,
+        // Lazy Theta* alone, which gives any-angle paths
+        ANY_ANGLE,
+        // Jump Point Search, A* that skips the symmetric runs of flat open terrain
+        JUMP_POINT
+    }
 
     @Override
     public void onInitializeClient() {
         MinecraftClient mc = MinecraftClient.getInstance();
+        worldChangeTracker = new WorldChangeTracker();
+        worldChangeTracker.register();
+        passabilityCache = new PassabilityCache(worldChangeTracker);
+        persistentNavCache = new PersistentNavCache(mc, passabilityCache);
+        persistentNavCache.register();
+        clusterGraph = new ClusterGraph(worldChangeTracker);
+        navMesh = new NavMesh();
+        navMeshBuilder = new NavMeshBuilder(mc, worldChangeTracker, passabilityCache, navMesh);
+        navMeshBuilder.register();
+        pathCache = new PathCache(worldChangeTracker);
+        searchStatistics = new SearchStatistics();
+
         pathExecutor = new PathExecutor(mc);
         pathExecutor.register();
         pathRenderer = new PathRenderer(mc);
         pathRenderer.register();
+        pathService = new PathService(mc);
+        searchMetricsHud = new SearchMetricsHud(mc, searchStatistics);
+        searchMetricsHud.register();
+
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> {
+            pathService.shutdown();
+            navMeshBuilder.shutdown();
+            persistentNavCache.close();
+        });
 
         pathfindKey = KeyBindingHelper.registerKeyBinding(new KeyBinding(
                 "key.wandering-player.path.search",
@@ -54,6 +106,13 @@ public class WanderingPlayerClient implements ClientModInitializer {
                 "category.wandering-player.title"
         ));
 
+        metricsHudKey = KeyBindingHelper.registerKeyBinding(new KeyBinding(
+                "key.wandering-player.metrics.hud",
+                InputUtil.Type.KEYSYM,
+                GLFW.GLFW_KEY_F8,
+                "category.wandering-player.title"
+        ));
+
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
             while (pathfindKey.wasPressed()) {
                 ClientPlayerEntity player = client.player;
@@ -70,32 +129,46 @@ public class WanderingPlayerClient implements ClientModInitializer {
                         world.getTopY(Heightmap.Type.WORLD_SURFACE, targetPos.getX(), targetPos.getZ()),
                         targetPos.getZ()
                 );
+                // copy the terrain around the goal while we are still on the client thread
+                context.snapshotAround(target);
 
                 /*if (!(context.canPlayerWalkAt(target) || context.isSubmerged(target))) {
                     player.sendMessage(Text.literal("You can not reach that target.").withColor(Colors.RED));
                     return;
                 }*/
 
-                AStarPathfinderBase pathfinder = new AStarPathfinder(
-                        new PathNode(start.getX(), start.getY(), start.getZ(), PathManoeuvre.WALK),
-                        new PathFinderGoal(target),
-                        context
-                );
-
-                List<PathNode> path = pathfinder.search();
-                if (path != null) {
-                    // simplify/smooth the path
-                    path = context.simplifyPath(path);
-                    pathExecutor.setNodes(path);
+                PathNode startNode = new PathNode(start.getX(), start.getY(), start.getZ(), PathManoeuvre.WALK);
+                AStarPathfinderBase pathfinder;
+                if (Math.sqrt(start.getSquaredDistance(target)) > HIERARCHICAL_PLANNING_DISTANCE) {
+                    pathfinder = new HierarchicalPathfinder(startNode, new PathFinderGoal(target), context, clusterGraph);
                 } else {
-                    player.sendMessage(Text.literal("You can not reach that target.").withColor(Colors.RED));
-                    return;
+                    pathfinder = switch (PLANNER) {
+                        case INCREMENTAL -> new DStarLitePathfinder(startNode, new PathFinderGoal(target), context);
+                        case PORTFOLIO -> new PortfolioPathfinder(startNode, new PathFinderGoal(target), context, List.of(
+                                AStarPathfinder::new, LazyAStarPathfinder::new, LazyThetaStarPathfinder::new, JumpPointPathfinder::new,
+                                (planStart, planGoal, planContext) -> new CorridorPathfinder(planStart, planGoal, planContext, navMesh)
+                        ));
+                        case CORRIDOR -> new CorridorPathfinder(startNode, new PathFinderGoal(target), context, navMesh);
+                        case ANY_ANGLE -> new LazyThetaStarPathfinder(startNode, new PathFinderGoal(target), context);
+                        case JUMP_POINT -> new JumpPointPathfinder(startNode, new PathFinderGoal(target), context);
+                    };
                 }
+                // reuse a path found earlier if it leads to the same target
+                pathfinder = new CachedPathfinder(pathfinder, pathCache);
+
+                // runs in the background, a newer search request cancels this one
+                pathService.submit(pathfinder, pathExecutor, () -> player.sendMessage(
+                        Text.literal("You can not reach that target.").withColor(Colors.RED)
+                ));
             }
 
             while (pathExecuteKey.wasPressed()) {
                 pathExecutor.setEnabled(!pathExecutor.isEnabled);
             }
+
+            while (metricsHudKey.wasPressed()) {
+                searchMetricsHud.setEnabled(!searchMetricsHud.isEnabled);
+            }
         });
     }
 
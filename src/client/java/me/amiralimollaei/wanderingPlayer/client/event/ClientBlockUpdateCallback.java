@@ -0,0 +1,23 @@
+package me.amiralimollaei.wanderingPlayer.client.event;
+
+import net.fabricmc.fabric.api.event.Event;
+import net.fabricmc.fabric.api.event.EventFactory;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+
+/*
+Called on the client thread whenever a block in the client world changes, either because the
+server sent an update or because the client predicted the change (e.g. breaking a block).
+ */
+@FunctionalInterface
+public interface ClientBlockUpdateCallback {
+    Event<ClientBlockUpdateCallback> EVENT = EventFactory.createArrayBacked(ClientBlockUpdateCallback.class,
+            listeners -> (world, pos, oldState, newState) -> {
+                for (ClientBlockUpdateCallback listener : listeners) {
+                    listener.onBlockUpdate(world, pos, oldState, newState);
+                }
+            });
+
+    void onBlockUpdate(ClientWorld world, BlockPos pos, BlockState oldState, BlockState newState);
+}
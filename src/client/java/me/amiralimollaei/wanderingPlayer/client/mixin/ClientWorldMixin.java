@@ -0,0 +1,21 @@
+package me.amiralimollaei.wanderingPlayer.client.mixin;
+
+import me.amiralimollaei.wanderingPlayer.client.event.ClientBlockUpdateCallback;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ClientWorld.class)
+public abstract class ClientWorldMixin {
+    // every client side block change (server updates and predicted changes) ends up here
+    @Inject(method = "updateListeners", at = @At("HEAD"))
+    private void wanderingPlayer$onUpdateListeners(BlockPos pos, BlockState oldState, BlockState newState, int flags, CallbackInfo ci) {
+        if (oldState != newState) {
+            ClientBlockUpdateCallback.EVENT.invoker().onBlockUpdate((ClientWorld) (Object) this, pos, oldState, newState);
+        }
+    }
+}
@@ -1,41 +1,65 @@
 package me.amiralimollaei.wanderingPlayer.client.movement;
 
 import me.amiralimollaei.wanderingPlayer.client.WanderingPlayerClient;
+import me.amiralimollaei.wanderingPlayer.client.event.ClientBlockUpdateCallback;
 import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.*;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.command.argument.EntityAnchorArgumentType;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
 import org.apache.commons.lang3.NotImplementedException;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class PathExecutor {
     public boolean isEnabled = false;
 
-    private final @NotNull MinecraftClient client;
+    // null for detached executors
+    private final @Nullable MinecraftClient client;
     private ClientPlayerEntity player;
 
     private PathFinderContext context;
-    public static List<PathNode> nodesList = new ArrayList<>();
-    // a Map that connects each node to the node after it in multiple steps
-    public static Map<Integer, List<Vec3d>> pathList = new HashMap<>();
-    // contains all positions in pathList
-    public static List<Vec3d> positionList = new ArrayList<>();
+    // the path being followed, null if there's none
+    public static @Nullable CompactPath path = null;
+    // the positions the player follows, generated as the player gets close to them, null if there's no path
+    private @Nullable PathTrajectory trajectory = null;
+    // how far along the trajectory the player is, null if there's no path
+    private @Nullable PathProgressTracker progressTracker = null;
 
     // execution variables
     public static int currentNodeIdx = -1;
+    // relative to the first target of the current node
     public static int currentPositionIdx = -1;
 
+    // keeps its search state so the path can be repaired when blocks change, null if the path can't be repaired
+    private @Nullable IncrementalPathfinder replanner = null;
+    // chunk section -> [first, last] node within REPLAN_DISTANCE of it, block changes in other sections are ignored
+    private final Map<Long, int[]> nodeRangesBySection = new HashMap<>();
+    // blocks that changed near the path since the last repair started
+    private final Set<BlockPos> pendingChanges = new HashSet<>();
+    // the repair running on the PathService executor, the old path is followed until it's done, null if there's none
+    private @Nullable CompletableFuture<List<PathNode>> pendingRepair = null;
+
     // constants
-    public final double DELTA_EMA_ALPHA = 0.5;
     public final int PATH_RESCALING_TIMES = 3;
+    // block changes further than this from every remaining node are ignored
+    public final double REPLAN_DISTANCE = 3.0;
+    // how far along the path past the player it steers towards
+    public final double LOOKAHEAD_DISTANCE = 1.0;
+    // the player keeps sprinting unless the trajectory turns more than MAX_SPRINT_TURN degrees within this distance
+    public final double CORNER_LOOKAHEAD_DISTANCE = 3.0;
+    public final double MAX_SPRINT_TURN = 60.0;
 
     public PathExecutor(MinecraftClient client){
         assert client.player != null;
@@ -43,6 +67,17 @@ public class PathExecutor {
         this.player = client.player;
     }
 
+    /**
+     * Creates an executor that isn't bound to a client, it can prepare paths but never moves a player.
+     *
+     * @param context the context used to look up the surroundings of path nodes
+     */
+    PathExecutor(PathFinderContext context) {
+        this.client = null;
+        this.player = null;
+        this.context = context;
+    }
+
     public void setEnabled(boolean enabled) {
         isEnabled = enabled;
         if (!enabled) {
@@ -50,111 +85,134 @@ public class PathExecutor {
         }
     }
 
-    public void setNodes(List<PathNode> pathNodes) {
+    /**
+     * @param context the context of the search that found the path, its snapshot is reused to prepare the path
+     */
+    public void setNodes(List<PathNode> pathNodes, PathFinderContext context) {
+        setNodes(pathNodes, context, null);
+    }
+
+    public void setNodes(List<PathNode> pathNodes, PathFinderContext context, @Nullable IncrementalPathfinder replanner) {
+        assert client != null;
         player = client.player;
         assert client.player != null;
-        context = new PathFinderContext(player);
+        this.context = context;
 
         clear();
-        nodesList = pathNodes;
+        this.replanner = replanner;
+        path = CompactPath.encode(pathNodes);
         preparePath();
     }
 
-    public void preparePath() {
-        // if we don't have at least two nodes we cannot calculate a path
-        if (nodesList == null || nodesList.size() < 2) {
+    private void onBlockChanged(BlockPos pos) {
+        if (replanner == null || trajectory == null) {
             return;
         }
-
-        for (int nodeIdx = 0; nodeIdx < nodesList.size() -1; nodeIdx++) {
-            PathNode currNode = nodesList.get(nodeIdx);
-            PathNode nextNode = nodesList.get(nodeIdx+1);
-
-            Vec3d currPos = currNode.getManoeuvre() == PathManoeuvre.SWIM ? currNode.getSwimmingPosition() : currNode.getStandingPosition();
-            Vec3d nextPos = nextNode.getManoeuvre() == PathManoeuvre.SWIM ? nextNode.getSwimmingPosition() : nextNode.getStandingPosition();
-
-            // avoid colliding with obstacles or unsafe blocks (lava, cacti, etc.)
-            Vec3d currUnsafePreventionDelta = getUnsafeDirection(currNode).multiply(0.5);
-            Vec3d nextUnsafePreventionDelta = getUnsafeDirection(nextNode).multiply(0.5);
-            currPos = currPos.add(currUnsafePreventionDelta);
-            nextPos = nextPos.add(nextUnsafePreventionDelta);
-
-            // perform linear interpolation: [current, next)
-            List<Vec3d> linearPosList = new ArrayList<>();
-            int interpolationTimes = (int) Math.ceil((float) PATH_RESCALING_TIMES * nextPos.distanceTo(currPos));
-            if (interpolationTimes > 0) {
-                for (int i = 0; i < interpolationTimes; i++) {
-                    double alpha = (double) i / (double) interpolationTimes;
-                    Vec3d interpolatedPos = currPos.multiply(1-alpha).add(nextPos.multiply(alpha));
-                    linearPosList.add(interpolatedPos);
-                }
-            } else {
-                linearPosList.add(currPos);
+        // most block updates (crops, redstone, other players building) are nowhere near the path
+        int[] nodeRange = nodeRangesBySection.get(ChunkSectionPos.toLong(pos));
+        if (nodeRange == null) {
+            return;
+        }
+        double maxSquaredDistance = REPLAN_DISTANCE * REPLAN_DISTANCE;
+        for (int i = Math.max(currentNodeIdx, nodeRange[0]); i <= nodeRange[1]; i++) {
+            if (trajectory.getSquaredDistance(i, pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5) <= maxSquaredDistance) {
+                pendingChanges.add(pos.toImmutable());
+                return;
             }
-
-            pathList.put(currNode.getHash(), applyManoeuvresConstraints(linearPosList, currNode));
         }
+    }
 
-        PathNode lastNode = nodesList.get(nodesList.size()-1);
-        List<Vec3d> lastPosList = new ArrayList<>();
-        lastPosList.add(lastNode.getPosition());
-        pathList.put(lastNode.getHash(), lastPosList);
-
-        positionList = new ArrayList<>();
-        for (PathNode node : nodesList) {
-            List<Vec3d> positions = pathList.get(node.getHash());
-            if (positions != null){
-                positionList.addAll(positions);
+    // repairs the path around the changed blocks in the background and swaps it in without stopping
+    private void repairPath() {
+        assert replanner != null;
+        assert path != null;
+        if (pendingRepair != null) {
+            return; // the changes are handed over once the running repair is done
+        }
+        PathNode currentNode = path.getNode(Math.max(0, currentNodeIdx));
+        IncrementalPathfinder currentReplanner = replanner;
+        List<BlockPos> changes = List.copyOf(pendingChanges);
+        pendingChanges.clear();
+
+        CompletableFuture<List<PathNode>> repair = WanderingPlayerClient.pathService.repair(currentReplanner, currentNode, changes);
+        pendingRepair = repair;
+        repair.whenCompleteAsync((repaired, throwable) -> {
+            if (pendingRepair != repair) {
+                return; // the path was replaced or cleared in the meantime
+            }
+            pendingRepair = null;
+            if (throwable != null) {
+                WanderingPlayerClient.getLogger().error("path repair failed", throwable);
+                finishExecution();
+                return;
             }
+            if (repaired == null) {
+                WanderingPlayerClient.getLogger().info("path is blocked and could not be repaired");
+                finishExecution();
+                return;
+            }
+            WanderingPlayerClient.getLogger().debug("repaired path, new length={}", repaired.size());
+            // blocks that changed while the repair ran still have to be handed to the replanner
+            List<BlockPos> laterChanges = List.copyOf(pendingChanges);
+            setNodes(context.simplifyPath(repaired), context, currentReplanner);
+            pendingChanges.addAll(laterChanges);
+        }, client);
+    }
+
+    public void preparePath() {
+        // if we don't have at least two nodes we cannot calculate a path
+        if (path == null || path.size() < 2) {
+            return;
         }
+
+        // targets are only generated for the part of the path right ahead of the player
+        trajectory = new PathTrajectory(path, context, PATH_RESCALING_TIMES);
+        progressTracker = new PathProgressTracker(trajectory);
+        indexNodeSections(trajectory);
     }
 
-    private static @NotNull List<Vec3d> applyManoeuvresConstraints(List<Vec3d> linearPosList, PathNode currNode) {
-        List<Vec3d> modifiedPosList = new ArrayList<>();
-        for (Vec3d pos: linearPosList) {
-            Vec3d newPos;
-            // TODO: add more Manoeuvres
-            switch (currNode.getManoeuvre()) {
-                case WALK -> {
-                    newPos = new Vec3d(pos.x, Math.round(pos.y), pos.z);
-                }
-                default -> {
-                    newPos = pos;
+    // maps every chunk section within REPLAN_DISTANCE of a node to the first and last of those nodes
+    private void indexNodeSections(PathTrajectory trajectory) {
+        nodeRangesBySection.clear();
+        double[] nodes = trajectory.getNodePositions();
+        for (int i = 0; i < trajectory.getNodeCount(); i++) {
+            int minX = ChunkSectionPos.getSectionCoord(MathHelper.floor(nodes[i * 3] - REPLAN_DISTANCE));
+            int minY = ChunkSectionPos.getSectionCoord(MathHelper.floor(nodes[i * 3 + 1] - REPLAN_DISTANCE));
+            int minZ = ChunkSectionPos.getSectionCoord(MathHelper.floor(nodes[i * 3 + 2] - REPLAN_DISTANCE));
+            int maxX = ChunkSectionPos.getSectionCoord(MathHelper.floor(nodes[i * 3] + REPLAN_DISTANCE));
+            int maxY = ChunkSectionPos.getSectionCoord(MathHelper.floor(nodes[i * 3 + 1] + REPLAN_DISTANCE));
+            int maxZ = ChunkSectionPos.getSectionCoord(MathHelper.floor(nodes[i * 3 + 2] + REPLAN_DISTANCE));
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        int node = i;
+                        nodeRangesBySection.computeIfAbsent(ChunkSectionPos.asLong(x, y, z), key -> new int[]{node, node})[1] = node;
+                    }
                 }
             }
-            modifiedPosList.add(newPos);
         }
-        return modifiedPosList;
     }
 
-    private Vec3d getUnsafeDirection(PathNode node) {
-        Vec3d unsafePreventionDelta = new Vec3d(0, 0, 0);
-        for (PathNode neighbor : context.getHorizontalNeighborsOf(node)) {
-            if (neighbor.getManoeuvre() != PathManoeuvre.NULL) {
-                continue;
-            }
-            unsafePreventionDelta = unsafePreventionDelta.add(
-                    node.pos.subtract(neighbor.pos).toCenterPos()
-            );
-        }
-        Vec3d unsafeDirection = unsafePreventionDelta.normalize();
-        WanderingPlayerClient.getLogger().debug(
-                "node={}, unsafeDirection={}",
-                node,
-                unsafeDirection
-        );
-
-        return unsafeDirection;
+    /**
+     * @return the trajectory of the current path, null if there's none
+     */
+    @Nullable PathTrajectory getTrajectory() {
+        return trajectory;
     }
 
     public void register() {
         ClientTickEvents.END_CLIENT_TICK.register(this::tickMovement);
+        ClientBlockUpdateCallback.EVENT.register((world, pos, oldState, newState) -> onBlockChanged(pos));
     }
 
     public void clear() {
-        nodesList.clear();
-        pathList.clear();
-        positionList.clear();
+        replanner = null;
+        pendingChanges.clear();
+        nodeRangesBySection.clear();
+        pendingRepair = null;
+        path = null;
+        trajectory = null;
+        progressTracker = null;
         currentNodeIdx = -1; // reset node index
         currentPositionIdx = -1; // reset position index
     }
@@ -170,12 +228,17 @@ public class PathExecutor {
         }
 
         // Check if path is empty or the target is reached
-        if (nodesList == null || nodesList.isEmpty()) {
+        if (trajectory == null || progressTracker == null) {
             return;
         }
 
+        if (replanner != null && !pendingChanges.isEmpty()) {
+            repairPath();
+        }
+
+        int nodeCount = trajectory.getNodeCount();
         Vec3d playerPos = player.getPos();
-        Vec3d targetPosition = nodesList.get(nodesList.size()-1).getPosition();
+        Vec3d targetPosition = trajectory.getNodePosition(nodeCount - 1);
 
         // check if we have reached the target
         if (getWeightedDistance(targetPosition, playerPos, 0.2) <= 1.0) {
@@ -183,60 +246,32 @@ public class PathExecutor {
             return;
         }
 
-        // find the node that we are currently at
-        // the current node is closest to the player that its index is higher than the current index and
-        // its distance is lower than the threshold
-        double minNodeDistance = 1.0;
-        if (currentNodeIdx == -1) {
-            minNodeDistance = 4.0;
-        } else if (nodesList.size() > (currentNodeIdx+1)) {
-            minNodeDistance = 1.2 * nodesList.get(currentNodeIdx).distanceTo(nodesList.get(currentNodeIdx+1));
-        }
-        for (int i = currentNodeIdx + 1; i < nodesList.size(); i++) {
-            PathNode node = nodesList.get(i);
-            Vec3d nodePos = node.getManoeuvre() == PathManoeuvre.SWIM ? node.getSwimmingPosition() : node.getStandingPosition();
-            double weightedDistance = getWeightedDistance(nodePos, playerPos, 0.1);
-            if (weightedDistance < minNodeDistance) {
-                currentNodeIdx = i;
-                currentPositionIdx = -1; // reset position index
-                minNodeDistance = weightedDistance;
-            }
+        // project the player onto the path, only the segments right after the last projection are checked
+        progressTracker.update(playerPos);
+        int segment = progressTracker.getSegment();
+        // the current node is the one the segment the player is on starts from
+        currentNodeIdx = Math.max(0, currentNodeIdx);
+        while (currentNodeIdx + 1 < trajectory.getGeneratedSegments() && trajectory.getTargetStart(currentNodeIdx + 1) <= segment) {
+            currentNodeIdx++;
         }
+        currentPositionIdx = segment - trajectory.getTargetStart(currentNodeIdx);
+        PathManoeuvre currentManoeuvre = trajectory.getManoeuvre(currentNodeIdx);
 
-        // Get the next node to move towards
-        PathNode currentNode = nodesList.get(currentNodeIdx);
-
-        List<Vec3d> currentPosList = pathList.get(currentNode.getHash());
-        double minPositionDistance = 1.0;
-        if (currentPositionIdx == -1) {
-            minPositionDistance = Double.POSITIVE_INFINITY;
-        } else if (currentPosList.size() > (currentPositionIdx+1)) {
-            minPositionDistance = 1.2 * currentPosList.get(currentPositionIdx).distanceTo(currentPosList.get(currentPositionIdx+1));
-        }
-        for (int i = currentPositionIdx + 1; i < currentPosList.size(); i++) {
-            Vec3d pos = currentPosList.get(i);
-            // current pos is the closest pos to the player
-            double weightedDistance = getWeightedDistance(pos, playerPos, 0.1);
-            if (weightedDistance < minPositionDistance) {
-                currentPositionIdx = i;
-                minPositionDistance = weightedDistance;
-            }
-        }
-        Vec3d currentTarget = currentPosList.get(currentPositionIdx);
+        Vec3d currentTarget = progressTracker.sample(progressTracker.getProgress() + LOOKAHEAD_DISTANCE);
 
         Vec3d deltaPos = currentTarget.subtract(playerPos);
 
         HeadDirection headDirection = getHeadDirection(currentTarget);
 
-        switch (currentNode.getManoeuvre()) {
+        switch (currentManoeuvre) {
             case WALK -> { // walking, jumping, running
                 player.setYaw(headDirection.yaw());
                 player.prevYaw = headDirection.yaw();
 
                 client.options.forwardKey.setPressed(true);
 
-                double distance = getWeightedDistance(currentNode.getPosition(), playerPos, 0.1);
-                player.setSprinting(distance > 1.0);
+                Vec3d cornerTarget = progressTracker.sample(progressTracker.getProgress() + CORNER_LOOKAHEAD_DISTANCE);
+                player.setSprinting(getTurnAngle(playerPos, currentTarget, cornerTarget) < MAX_SPRINT_TURN);
                 client.options.jumpKey.setPressed(player.isOnGround() && (deltaPos.y > 0.3));
             }
             case SWIM -> { // swimming both on the surface of water/lava and underwater/lava.
@@ -260,10 +295,8 @@ public class PathExecutor {
         Vec3d eyesPos = EntityAnchorArgumentType.EntityAnchor.EYES.positionAt(player);
         Vec3d delta = currentTarget.subtract(eyesPos);
 
+        // the trajectory is already smooth, the head follows it without lagging behind at corners
         Vec3d direction = delta.normalize();
-        Vec3d currDirection = Vec3d.fromPolar(player.getPitch(), player.getYaw());
-
-        direction = currDirection.multiply(1-DELTA_EMA_ALPHA).add(direction.multiply(DELTA_EMA_ALPHA));
 
         float yaw = MathHelper.wrapDegrees((float)(MathHelper.atan2(direction.z, direction.x) * 180.0F / (float)Math.PI) - 90.0F);
         float pitch = MathHelper.wrapDegrees((float)(Math.atan2(Math.sqrt(direction.z * direction.z + direction.x * direction.x), direction.y) * 180.0F / (float)Math.PI) - 90.0F);
@@ -272,6 +305,17 @@ public class PathExecutor {
 
     private record HeadDirection(Vec3d delta, float yaw, float pitch) { }
 
+    // horizontal angle in degrees between the directions from -> via and via -> to
+    private static double getTurnAngle(Vec3d from, Vec3d via, Vec3d to) {
+        double ax = via.x - from.x, az = via.z - from.z;
+        double bx = to.x - via.x, bz = to.z - via.z;
+        double lengths = Math.sqrt((ax * ax + az * az) * (bx * bx + bz * bz));
+        if (lengths < 1e-6) {
+            return 0;
+        }
+        return Math.toDegrees(Math.acos(MathHelper.clamp((ax * bx + az * bz) / lengths, -1.0, 1.0)));
+    }
+
     private double getWeightedDistance(Vec3d nodePos, Vec3d playerPos, double deltaTime) {
         assert deltaTime >= 0.0;
         double heightWeight = 0.2;
@@ -291,6 +335,9 @@ public class PathExecutor {
     }
 
     private void stopMovement() {
+        if (client == null || player == null) {
+            return;
+        }
         client.options.forwardKey.setPressed(false);
         client.options.backKey.setPressed(false);
         client.options.leftKey.setPressed(false);
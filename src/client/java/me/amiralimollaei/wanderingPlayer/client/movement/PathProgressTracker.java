@@ -0,0 +1,200 @@
+package me.amiralimollaei.wanderingPlayer.client.movement;
+
+import net.minecraft.util.math.Vec3d;
+
+/*
+Tracks how far along the targets of a PathTrajectory the player is, the player is projected onto
+the segment it was last on and the few after it, so a tick costs the same on a ten block path and
+on a ten thousand block one.
+
+distances along the targets come from the arc-length table the trajectory keeps, a point at a
+given distance is found in constant time since the targets are evenly spaced. only the window of
+targets the tracker looks at is generated. progress never goes backwards, a player
+pushed back is steered to where it left the path, a player that ends up far from the window
+(further along, or next to the path somewhere else) is found again with a scan over the rest of
+the nodes. the scan checks a bounded number of nodes a tick and waits a while before starting
+over when it found nothing closer, so a player stuck off the path costs a few hundred distance
+checks a tick, whatever the length of the path.
+ */
+public class PathProgressTracker {
+    // segments checked past the current one, a few blocks at PathExecutor#PATH_RESCALING_TIMES points per block
+    public final int LOOKAHEAD_SEGMENTS = 12;
+    // vertical distance counts less than horizontal distance, the player is often a little above or below the path
+    public final double HEIGHT_WEIGHT = 0.2;
+    // a player further than this from every segment of the window is looked for along the rest of the path
+    public final double RECOVERY_DISTANCE = 2.0;
+    // nodes the scan for a player that left the window checks a tick
+    public final int RECOVERY_NODES_PER_TICK = 256;
+    // ticks to wait before scanning again after a scan that found nothing closer than the window
+    public final int RECOVERY_COOLDOWN_TICKS = 20;
+
+    private final PathTrajectory trajectory;
+
+    private int segment = 0;
+    private double progress = 0;
+    // the closest point found by the current update
+    private int bestSegment = 0;
+    private double bestProgress = 0;
+    // the node the current segment belongs to, nodes before it are behind the progress
+    private int firstNode = 0;
+    // the next node the running recovery scan checks, -1 if no scan is running
+    private int recoveryNode = -1;
+    private int recoveryBestNode = -1;
+    private double recoveryBestDistance = Double.POSITIVE_INFINITY;
+    private int recoveryCooldown = 0;
+
+    public PathProgressTracker(PathTrajectory trajectory) {
+        this.trajectory = trajectory;
+    }
+
+    /**
+     * Moves the progress to the point of the window of segments closest to the position, if the position is
+     * further than RECOVERY_DISTANCE from all of them the rest of the path is searched for the closest point.
+     */
+    public void update(Vec3d pos) {
+        trajectory.ensurePoints(segment + LOOKAHEAD_SEGMENTS + 2);
+        if (trajectory.getPointCount() < 2) {
+            return;
+        }
+        bestSegment = segment;
+        bestProgress = progress;
+        double bestDistance = project(pos, segment, segment + LOOKAHEAD_SEGMENTS, Double.POSITIVE_INFINITY);
+        if (bestDistance > RECOVERY_DISTANCE * RECOVERY_DISTANCE) {
+            // the player left the window (knocked back, teleported, took a shortcut), find it again
+            recover(pos, bestDistance);
+        } else {
+            recoveryNode = -1;
+            recoveryCooldown = 0;
+        }
+        segment = bestSegment;
+        progress = Math.max(progress, bestProgress);
+    }
+
+    // continues the scan for the closest node, once it reached the last node the player is projected onto the targets
+    // around the closest one
+    private void recover(Vec3d pos, double bestDistance) {
+        if (recoveryCooldown > 0) {
+            recoveryCooldown--;
+            return;
+        }
+        while (firstNode + 1 < trajectory.getGeneratedSegments() && trajectory.getTargetStart(firstNode + 1) <= segment) {
+            firstNode++;
+        }
+        if (recoveryNode == -1) {
+            recoveryNode = firstNode;
+            recoveryBestNode = -1;
+            recoveryBestDistance = Double.POSITIVE_INFINITY;
+        }
+        double[] nodes = trajectory.getNodePositions();
+        int nodeCount = trajectory.getNodeCount();
+        int end = Math.min(nodeCount, recoveryNode + RECOVERY_NODES_PER_TICK);
+        for (; recoveryNode < end; recoveryNode++) {
+            int next = Math.min(nodeCount - 1, recoveryNode + 1);
+            double t = getSegmentParameter(pos, nodes, recoveryNode * 3, next * 3);
+            double distance = getSquaredDistance(pos, nodes, recoveryNode * 3, next * 3, t);
+            if (distance < recoveryBestDistance) {
+                recoveryBestDistance = distance;
+                recoveryBestNode = recoveryNode;
+            }
+        }
+        if (recoveryNode < nodeCount) {
+            return;
+        }
+
+        recoveryNode = -1;
+        if (recoveryBestNode != -1) {
+            trajectory.ensureSegments(recoveryBestNode + 2);
+            int first = Math.max(segment, trajectory.getTargetStart(recoveryBestNode));
+            int last = recoveryBestNode + 1 < trajectory.getGeneratedSegments()
+                    ? trajectory.getTargetStart(recoveryBestNode + 1)
+                    : trajectory.getPointCount();
+            if (project(pos, first, last, bestDistance) < bestDistance) {
+                return;
+            }
+        }
+        // nothing closer than the window, the player is probably stuck, don't scan again on every tick
+        recoveryCooldown = RECOVERY_COOLDOWN_TICKS;
+    }
+
+    // projects the position onto the targets from segment `first` to `last`, keeps the closest point closer than bestDistance
+    private double project(Vec3d pos, int first, int last, double bestDistance) {
+        double[] points = trajectory.getPoints();
+        double[] arcLengths = trajectory.getArcLengths();
+        last = Math.min(trajectory.getPointCount() - 2, last);
+        for (int i = first; i <= last; i++) {
+            double t = getSegmentParameter(pos, points, i * 3, i * 3 + 3);
+            double distance = getSquaredDistance(pos, points, i * 3, i * 3 + 3, t);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestSegment = i;
+                bestProgress = arcLengths[i] + (arcLengths[i + 1] - arcLengths[i]) * t;
+            }
+        }
+        return bestDistance;
+    }
+
+    // where along the segment between the (x, y, z) triples at offsets a and b the position is closest, 0 to 1
+    private double getSegmentParameter(Vec3d pos, double[] points, int a, int b) {
+        double sx = points[b] - points[a], sy = points[b + 1] - points[a + 1], sz = points[b + 2] - points[a + 2];
+        double px = pos.x - points[a], py = pos.y - points[a + 1], pz = pos.z - points[a + 2];
+        double squaredLength = sx * sx + sy * sy * HEIGHT_WEIGHT + sz * sz;
+        double t = squaredLength > 0 ? (px * sx + py * sy * HEIGHT_WEIGHT + pz * sz) / squaredLength : 0;
+        return Math.max(0, Math.min(1, t));
+    }
+
+    private double getSquaredDistance(Vec3d pos, double[] points, int a, int b, double t) {
+        double dx = pos.x - (points[a] + (points[b] - points[a]) * t);
+        double dy = pos.y - (points[a + 1] + (points[b + 1] - points[a + 1]) * t);
+        double dz = pos.z - (points[a + 2] + (points[b + 2] - points[a + 2]) * t);
+        return dx * dx + dy * dy * HEIGHT_WEIGHT + dz * dz;
+    }
+
+    /**
+     * @return the point at a distance along the trajectory, distances past the end give the last point
+     */
+    public Vec3d sample(double distance) {
+        trajectory.ensureDistance(distance);
+        int pointCount = trajectory.getPointCount();
+        if (pointCount < 2 || distance <= 0) {
+            return getPoint(0);
+        }
+        if (distance >= getLength()) {
+            return getPoint(pointCount - 1);
+        }
+        double[] points = trajectory.getPoints();
+        double[] arcLengths = trajectory.getArcLengths();
+        // targets are evenly spaced, only the last one may be closer to the one before it
+        int i = Math.min(pointCount - 2, (int) (distance / trajectory.getSpacing()));
+        double segmentLength = arcLengths[i + 1] - arcLengths[i];
+        double t = segmentLength > 0 ? (distance - arcLengths[i]) / segmentLength : 0;
+        return new Vec3d(
+                points[i * 3] + (points[i * 3 + 3] - points[i * 3]) * t,
+                points[i * 3 + 1] + (points[i * 3 + 4] - points[i * 3 + 1]) * t,
+                points[i * 3 + 2] + (points[i * 3 + 5] - points[i * 3 + 2]) * t
+        );
+    }
+
+    private Vec3d getPoint(int i) {
+        double[] points = trajectory.getPoints();
+        return new Vec3d(points[i * 3], points[i * 3 + 1], points[i * 3 + 2]);
+    }
+
+    /**
+     * @return the index of the segment (and of the point it starts at) the player was last projected onto
+     */
+    public int getSegment() {
+        return segment;
+    }
+
+    public double getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return the length of the targets generated so far
+     */
+    public double getLength() {
+        int pointCount = trajectory.getPointCount();
+        return pointCount == 0 ? 0 : trajectory.getArcLengths()[pointCount - 1];
+    }
+}
@@ -1,25 +1,48 @@
 package me.amiralimollaei.wanderingPlayer.client.movement;
 
 import com.mojang.blaze3d.systems.RenderSystem;
-import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.PathNode;
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.CompactPath;
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.PathManoeuvre;
 import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderContext;
 import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderEvents;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gl.ShaderProgram;
+import net.minecraft.client.gl.VertexBuffer;
 import net.minecraft.client.render.*;
 import net.minecraft.client.util.math.MatrixStack;
-import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
-import net.minecraft.world.LightType;
-
-import java.util.ArrayList;
-import java.util.List;
+import org.jetbrains.annotations.Nullable;
 
 
 import static net.minecraft.client.render.VertexFormats.OVERLAY_ELEMENT;
 
 
+/*
+Draws the path being followed, the lines between the nodes and a cross at each node are built
+once when the path changes and kept on the GPU in a VertexBuffer, a frame only draws that buffer
+and the marker of the current node.
+
+vertices are relative to the first node of the path, floats lose precision far from the world
+origin, the buffer is moved by the offset between that node and the camera when drawing.
+ */
 public class PathRenderer {
+    public final float LINE_WIDTH = 5.0F;
+    // size of the cross drawn at each node
+    public final float NODE_MARKER_SIZE = 1F/16F;
+    // line colors go from START_COLOR at the start of the path to END_COLOR at its end
+    public final int START_COLOR = 0x7F0000;
+    public final int END_COLOR = 0x7FFF00;
+    public final int NODE_COLOR = 0xFF0000;
+    public final int CURRENT_NODE_COLOR = 0x00FF00;
+
     private final MinecraftClient client;
+    // the path the buffer was built from, paths are immutable so a new path is a new instance
+    private @Nullable CompactPath uploadedPath = null;
+    private @Nullable VertexBuffer vertexBuffer = null;
+    private Vec3d origin = Vec3d.ZERO;
+    // at the current node of the path
+    private @Nullable CompactPath.Cursor markerCursor = null;
 
     public PathRenderer(MinecraftClient client) {
         this.client = client;
@@ -31,85 +54,109 @@ public class PathRenderer {
     }
 
     private void onRenderWorld(WorldRenderContext context) {
-        // Retrieve the list of PathNodes
-        List<Position> positions = getPositions();
-
-        if (positions == null || positions.size() < 2) {
+        CompactPath path = PathExecutor.path;
+        if (path != uploadedPath) {
+            upload(path);
+        }
+        if (vertexBuffer == null || path == null) {
             return;
         }
 
-        // Set up the rendering context
         MatrixStack matrices = context.matrixStack();
-        VertexConsumerProvider vertexConsumers = context.consumers();
-
-        // Get the player's camera position (not used for translation or rotation here)
         Vec3d cameraPos = context.camera().getPos();
-
-        // Apply translation based on camera position, to render the path in world space.
-        matrices.translate(-cameraPos.x, -cameraPos.y, -cameraPos.z);
-
-        // Disable depth testing to ensure the lines render on top of blocks
-        //RenderSystem.disableDepthTest();
-
-        // Render lines between consecutive PathNodes
-        for (int i = 0; i < positions.size() - 1; i++) {
-            Position start = positions.get(i);
-            Position end = positions.get(i + 1);
-
-            Vec3d startPos = start.pos;
-            Vec3d endPos = end.pos;
-
-            // Set the light value of the nodes
-            int light = context.world().getMaxLightLevel();
-
-            // Render a line from startPos to endPos
-            renderLine(matrices, vertexConsumers, startPos, endPos, light);
-
-            // Render indicator markers at the start and end of this line.
-            // Here we use red for the start and green for the end.
-            renderIndicator(matrices, vertexConsumers, endPos, light, start.isCurrent ? 0x00FF00 : 0xFF0000);
+        matrices.push();
+        // the buffer is relative to the origin, render it in world space
+        matrices.translate(origin.x - cameraPos.x, origin.y - cameraPos.y, origin.z - cameraPos.z);
+
+        ShaderProgram shader = GameRenderer.getRenderTypeLinesProgram();
+        if (shader != null) {
+            RenderSystem.setShader(GameRenderer::getRenderTypeLinesProgram);
+            RenderSystem.lineWidth(LINE_WIDTH);
+            RenderSystem.enableDepthTest();
+            vertexBuffer.bind();
+            vertexBuffer.draw(matrices.peek().getPositionMatrix(), context.projectionMatrix(), shader);
+            VertexBuffer.unbind();
+            RenderSystem.lineWidth(1.0F);
         }
 
-        // Enable depth testing again after rendering the lines
-        //RenderSystem.enableDepthTest();
+        // the current node changes every few ticks, it's drawn on top of the cached path
+        int currentNodeIdx = PathExecutor.currentNodeIdx;
+        VertexConsumerProvider vertexConsumers = context.consumers();
+        if (vertexConsumers != null && currentNodeIdx >= 0 && currentNodeIdx < path.size()) {
+            // the current node only moves forward, the cursor follows it instead of walking the path every frame
+            if (markerCursor == null || markerCursor.getIndex() > currentNodeIdx) {
+                markerCursor = path.cursor();
+            }
+            while (markerCursor.getIndex() < currentNodeIdx && markerCursor.next()) {
+                // skip to the current node
+            }
+            Vec3d nodePos = getNodePosition(markerCursor).subtract(origin);
+            renderIndicator(matrices, vertexConsumers, nodePos, context.world().getMaxLightLevel(), CURRENT_NODE_COLOR);
+        }
+        matrices.pop();
     }
 
-    private void renderLine(MatrixStack matrices, VertexConsumerProvider vertexConsumers, Vec3d start, Vec3d end, int light) {
-
-        // Push the current matrix
-        matrices.push();
-
-        assert client.player != null;
-        Vec3d playerPos = client.player.getPos();
+    // builds the lines of the path and uploads them, runs on the render thread
+    private void upload(@Nullable CompactPath path) {
+        uploadedPath = path;
+        markerCursor = null;
+        if (vertexBuffer != null) {
+            vertexBuffer.close();
+            vertexBuffer = null;
+        }
+        if (path == null || path.size() < 2) {
+            return;
+        }
 
-        // Set the line width to make the lines thicker (default is 1.0f, increase for thicker lines)
-        RenderSystem.lineWidth(5F);  // You can adjust the width as needed
+        CompactPath.Cursor cursor = path.cursor();
+        cursor.next();
+        origin = getNodePosition(cursor);
+        BufferBuilder builder = Tessellator.getInstance().getBuffer();
+        builder.begin(VertexFormat.DrawMode.LINES, VertexFormats.LINES);
+        Vec3d prevPos = Vec3d.ZERO;
+        addNodeMarker(builder, prevPos);
+        while (cursor.next()) {
+            Vec3d pos = getNodePosition(cursor).subtract(origin);
+            float alpha = (float) cursor.getIndex() / (path.size() - 1);
+            addLine(builder, prevPos, pos, lerpColor(START_COLOR, END_COLOR, alpha));
+            addNodeMarker(builder, pos);
+            prevPos = pos;
+        }
 
-        // Set up the vertex consumer
-        VertexConsumer vertexConsumer = vertexConsumers.getBuffer(RenderLayer.getLines());
+        vertexBuffer = new VertexBuffer(VertexBuffer.Usage.STATIC);
+        vertexBuffer.bind();
+        vertexBuffer.upload(builder.end());
+        VertexBuffer.unbind();
+    }
 
-        // Define the start and end points of the line
-        vertexConsumer.vertex(matrices.peek().getPositionMatrix(), (float) start.x, (float) start.y, (float) start.z)
-                .color(127, (int) Math.min(Math.sqrt(playerPos.distanceTo(start))*25.5, 255), 0, 255)
-                .texture(0, 0)
-                .overlay(OVERLAY_ELEMENT.getUvIndex())
-                .light(light)
-                .normal(0, 0, 0)
-                .next();
+    private static Vec3d getNodePosition(CompactPath.Cursor cursor) {
+        double y = cursor.getY() + (cursor.getManoeuvre() == PathManoeuvre.SWIM ? 0.5 : 0.0);
+        return new Vec3d(cursor.getX() + 0.5, y, cursor.getZ() + 0.5);
+    }
 
-        vertexConsumer.vertex(matrices.peek().getPositionMatrix(), (float) end.x, (float) end.y, (float) end.z)
-                .color(127, (int) Math.min(Math.sqrt(playerPos.distanceTo(end))*25.5, 255), 0, 255)
-                .texture(0, 0)
-                .overlay(OVERLAY_ELEMENT.getUvIndex())
-                .light(light)
-                .normal(0, 0, 0)
-                .next();
+    // the lines shader widens lines along their normal, so it has to be the direction of the line
+    private static void addLine(BufferBuilder builder, Vec3d start, Vec3d end, int color) {
+        Vec3d normal = end.subtract(start).normalize();
+        int r = (color >> 16) & 0xFF;
+        int g = (color >> 8) & 0xFF;
+        int b = color & 0xFF;
+        builder.vertex(start.x, start.y, start.z).color(r, g, b, 255).normal((float) normal.x, (float) normal.y, (float) normal.z).next();
+        builder.vertex(end.x, end.y, end.z).color(r, g, b, 255).normal((float) normal.x, (float) normal.y, (float) normal.z).next();
+    }
 
-        // Set the line width to make the lines thicker (default is 1.0f, increase for thicker lines)
-        RenderSystem.lineWidth(1.0f);  // You can adjust the width as needed
+    private void addNodeMarker(BufferBuilder builder, Vec3d point) {
+        double size = NODE_MARKER_SIZE;
+        addLine(builder, point.add(size, 0, size), point.add(size, 0, -size), NODE_COLOR);
+        addLine(builder, point.add(size, 0, size), point.add(-size, 0, size), NODE_COLOR);
+        addLine(builder, point.add(-size, 0, size), point.add(-size, 0, -size), NODE_COLOR);
+        addLine(builder, point.add(size, 0, -size), point.add(-size, 0, -size), NODE_COLOR);
+    }
 
-        // Pop the matrix
-        matrices.pop();
+    private static int lerpColor(int from, int to, float alpha) {
+        int r = (int) MathHelper.lerp(alpha, (from >> 16) & 0xFF, (to >> 16) & 0xFF);
+        int g = (int) MathHelper.lerp(alpha, (from >> 8) & 0xFF, (to >> 8) & 0xFF);
+        int b = (int) MathHelper.lerp(alpha, from & 0xFF, to & 0xFF);
+        return r << 16 | g << 8 | b;
     }
 
     /**
@@ -319,29 +366,4 @@ public class PathRenderer {
                 .normal(nx, ny, nz)
                 .next();
     }
-
-
-    private List<Position> getPositions() {
-        if (PathExecutor.nodesList == null || PathExecutor.pathList == null) {
-            return null;
-        }
-        List<Position> positionList = new ArrayList<>();
-        for (int i = 0; i < PathExecutor.nodesList.size()-1; i++) {
-            PathNode node = PathExecutor.nodesList.get(i);
-            List<Vec3d> positions = PathExecutor.pathList.get(node.getHash());
-            for (int j = 0; j < positions.size(); j++) {
-                Vec3d pos = positions.get(j);
-                positionList.add(
-                        new Position(
-                                pos,
-                                i == PathExecutor.currentNodeIdx && j == PathExecutor.currentPositionIdx
-                        )
-                );
-            }
-        }
-        return positionList;
-    }
-
-    private record Position(Vec3d pos, boolean isCurrent) {
-    }
-}
\ No newline at end of file
+}
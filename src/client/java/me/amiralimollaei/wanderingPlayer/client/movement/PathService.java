@@ -0,0 +1,177 @@
+package me.amiralimollaei.wanderingPlayer.client.movement;
+
+import me.amiralimollaei.wanderingPlayer.client.WanderingPlayerClient;
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.AStarPathfinderBase;
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.CachedPathfinder;
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.IncrementalPathfinder;
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.PathNode;
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.SearchMetrics;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.math.BlockPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Runs path searches on a background executor so that the client tick thread never
+blocks on a search, only one search is active at a time, submitting a new search
+cancels the previous one.
+
+on JDK 21+ searches run on virtual threads, on older JDKs we fall back to a small
+pool of daemon worker threads.
+ */
+public class PathService {
+    public final int WORKER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    private final MinecraftClient client;
+    private final ExecutorService executor;
+
+    private @Nullable AStarPathfinderBase currentPathfinder;
+    private @Nullable CompletableFuture<List<PathNode>> currentFuture;
+
+    public PathService(MinecraftClient client) {
+        this.client = client;
+        this.executor = createExecutor();
+    }
+
+    private ExecutorService createExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException ignored) {
+            // virtual threads are not available on this JDK
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "wandering-player-pathfinder-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(WORKER_THREADS, threadFactory);
+    }
+
+    /**
+     * Starts searching with the given pathfinder on a background thread, cancelling any search that is still running.
+     *
+     * @param pathfinder the pathfinder to run
+     * @return a future that completes with the simplified path (or null if no path exists),
+     *         the future is cancelled if another search replaces this one.
+     */
+    public synchronized CompletableFuture<List<PathNode>> submit(AStarPathfinderBase pathfinder) {
+        cancel();
+
+        CompletableFuture<List<PathNode>> future = CompletableFuture.supplyAsync(() -> {
+            pathfinder.search();
+            return finishSearch(pathfinder);
+        }, executor);
+
+        currentPathfinder = pathfinder;
+        currentFuture = future;
+        return future;
+    }
+
+    private List<PathNode> finishSearch(AStarPathfinderBase pathfinder) {
+        List<PathNode> path = pathfinder.getResult();
+        if (path != null && !pathfinder.isCancelled()) {
+            // simplify/smooth the path
+            path = pathfinder.context.simplifyPath(path);
+        }
+        SearchMetrics metrics = pathfinder.getMetrics();
+        WanderingPlayerClient.searchStatistics.record(pathfinder, metrics);
+        // one key=value line per search, so the log can be grepped and parsed for tuning
+        WanderingPlayerClient.getLogger().info(
+                "search finished: pathfinder={} status={} path_nodes={} {}",
+                pathfinder.getClass().getSimpleName(),
+                pathfinder.getStatus(),
+                path == null ? 0 : path.size(),
+                metrics.toLogString()
+        );
+        if (pathfinder.isPartial()) {
+            WanderingPlayerClient.getLogger().info(
+                    "search ran out of budget, moving to the closest reachable node instead"
+            );
+        }
+        return path;
+    }
+
+    /**
+     * Same as {@link #submit(AStarPathfinderBase)}, but the result is handed to the path executor on the client
+     * thread, a cancelled search is silently dropped.
+     *
+     * @param pathfinder   the pathfinder to run
+     * @param pathExecutor the executor that receives the path
+     * @param onFailure    called on the client thread if no path was found
+     * @return the future of the underlying search
+     */
+    public CompletableFuture<List<PathNode>> submit(AStarPathfinderBase pathfinder, PathExecutor pathExecutor, Runnable onFailure) {
+        return deliver(submit(pathfinder), pathfinder, pathExecutor, onFailure);
+    }
+
+    private CompletableFuture<List<PathNode>> deliver(CompletableFuture<List<PathNode>> future, AStarPathfinderBase pathfinder,
+                                                      PathExecutor pathExecutor, Runnable onFailure) {
+        future.whenCompleteAsync((path, throwable) -> {
+            if (future.isCancelled() || pathfinder.isCancelled()) {
+                return;
+            }
+            if (throwable != null) {
+                WanderingPlayerClient.getLogger().error("path search failed", throwable);
+                onFailure.run();
+            } else if (path != null) {
+                // incremental pathfinders keep their search state, so the executor can repair the path later on, the
+                // snapshot the search read is reused instead of copying the chunks around the player again
+                pathExecutor.setNodes(path, pathfinder.context.fork(), getReplanner(pathfinder));
+            } else {
+                onFailure.run();
+            }
+        }, client);
+        return future;
+    }
+
+    /**
+     * Repairs a path on the background executor, so the client tick never waits on the incremental search,
+     * the replanner must not be used by anything else until the future completes.
+     *
+     * @param start   the node the player is at
+     * @param changes the blocks that changed since the last plan
+     * @return a future that completes with the repaired path, or null if the goal can't be reached anymore
+     */
+    public CompletableFuture<List<PathNode>> repair(IncrementalPathfinder replanner, PathNode start, Collection<BlockPos> changes) {
+        return CompletableFuture.supplyAsync(() -> {
+            replanner.updateStart(start);
+            replanner.notifyBlocksChanged(changes);
+            return replanner.replan();
+        }, executor);
+    }
+
+    private static @Nullable IncrementalPathfinder getReplanner(AStarPathfinderBase pathfinder) {
+        if (pathfinder instanceof CachedPathfinder cached) {
+            return cached.getReplanner();
+        }
+        return pathfinder instanceof IncrementalPathfinder incremental ? incremental : null;
+    }
+
+    public synchronized void cancel() {
+        if (currentPathfinder != null) {
+            currentPathfinder.cancel();
+        }
+        if (currentFuture != null) {
+            currentFuture.cancel(false);
+        }
+        currentPathfinder = null;
+        currentFuture = null;
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+}
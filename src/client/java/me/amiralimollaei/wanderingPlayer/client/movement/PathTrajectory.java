@@ -0,0 +1,341 @@
+package me.amiralimollaei.wanderingPlayer.client.movement;
+
+import me.amiralimollaei.wanderingPlayer.client.WanderingPlayerClient;
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.CompactPath;
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.PathFinderContext;
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.PathManoeuvre;
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.PathNode;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/*
+The positions the player follows along a path (the targets), generated lazily: a segment from one
+node to the next is only interpolated when the player gets close to it, so a long path costs
+nothing up front and a repaired path only pays for the part that is actually walked.
+
+the targets lie on a centripetal Catmull-Rom spline through the nodes, so the player rounds
+corners instead of stopping and turning at every node, the spline is kept within a narrow
+corridor around the straight segments (those were checked for collisions). targets are spaced
+evenly along the spline, target i is at distance i / PATH_RESCALING_TIMES along it, which makes
+the arc-length table a lookup by index.
+
+each node is pushed away from unsafe neighbors (lava, cacti, etc.), that probe looks at the
+surroundings of the node and is done once per node, the segments sharing a node reuse it.
+ */
+public class PathTrajectory {
+    // targets per block along the spline
+    public final int PATH_RESCALING_TIMES;
+    // how densely the spline is evaluated to measure its length
+    public final int SPLINE_SAMPLES_PER_BLOCK = 8;
+    // how far the spline may bend away from the straight segment between two nodes
+    public final double CORRIDOR_RADIUS = 0.3;
+
+    private final PathFinderContext context;
+    private final int nodeCount;
+    // position (x, y, z) and manoeuvre of each node, decoded from the path once
+    private final double[] nodePositions;
+    private final PathManoeuvre[] nodeManoeuvres;
+    // how far each node is pushed away from unsafe neighbors, only valid for probed nodes
+    private final double[] nodeOffsets;
+    private final BitSet probedNodes = new BitSet();
+
+    // the targets as (x, y, z) triples, the targets between node i and the node after it are the ones from
+    // targetStarts[i] (inclusive) to targetStarts[i + 1] (exclusive)
+    private double[] points = new double[64 * 3];
+    // distance along the targets from the first target to each target
+    private double[] arcLengths = new double[64];
+    private int pointCount = 0;
+    private final int[] targetStarts;
+    // length of the spline generated so far and where it ends, targets lag a little behind it
+    private double splineLength = 0;
+    private final double[] splineEnd = new double[3];
+    // segments interpolated so far, the last node counts as a segment of its own
+    private int generatedSegments = 0;
+
+    public PathTrajectory(CompactPath path, PathFinderContext context, int rescalingTimes) {
+        this.context = context;
+        this.PATH_RESCALING_TIMES = rescalingTimes;
+        this.nodeCount = path.size();
+        this.nodePositions = new double[nodeCount * 3];
+        this.nodeManoeuvres = new PathManoeuvre[nodeCount];
+        this.nodeOffsets = new double[nodeCount * 3];
+        this.targetStarts = new int[nodeCount + 1];
+
+        CompactPath.Cursor cursor = path.cursor();
+        while (cursor.next()) {
+            int i = cursor.getIndex();
+            PathManoeuvre manoeuvre = cursor.getManoeuvre();
+            nodeManoeuvres[i] = manoeuvre;
+            nodePositions[i * 3] = cursor.getX() + 0.5;
+            nodePositions[i * 3 + 1] = cursor.getY() + (manoeuvre == PathManoeuvre.SWIM ? 0.5 : 0.0);
+            nodePositions[i * 3 + 2] = cursor.getZ() + 0.5;
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public PathManoeuvre getManoeuvre(int nodeIdx) {
+        return nodeManoeuvres[nodeIdx];
+    }
+
+    public Vec3d getNodePosition(int nodeIdx) {
+        return new Vec3d(nodePositions[nodeIdx * 3], nodePositions[nodeIdx * 3 + 1], nodePositions[nodeIdx * 3 + 2]);
+    }
+
+    /**
+     * @return the positions of the nodes as (x, y, z) triples, don't modify it
+     */
+    public double[] getNodePositions() {
+        return nodePositions;
+    }
+
+    public double getSquaredDistance(int nodeIdx, double x, double y, double z) {
+        double dx = nodePositions[nodeIdx * 3] - x;
+        double dy = nodePositions[nodeIdx * 3 + 1] - y;
+        double dz = nodePositions[nodeIdx * 3 + 2] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public boolean isComplete() {
+        return generatedSegments == nodeCount;
+    }
+
+    /**
+     * Generates targets until there are more than the given count or the trajectory is complete.
+     */
+    public void ensurePoints(int count) {
+        while (pointCount < count && !isComplete()) {
+            generateSegment();
+        }
+    }
+
+    /**
+     * Generates targets until they reach the given distance along the path or the trajectory is complete.
+     */
+    public void ensureDistance(double distance) {
+        while ((pointCount == 0 || arcLengths[pointCount - 1] < distance) && !isComplete()) {
+            generateSegment();
+        }
+    }
+
+    /**
+     * Generates targets until the first `count` segments have theirs or the trajectory is complete.
+     */
+    public void ensureSegments(int count) {
+        while (generatedSegments < count && !isComplete()) {
+            generateSegment();
+        }
+    }
+
+    public double getSpacing() {
+        return 1.0 / PATH_RESCALING_TIMES;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * @return the generated targets as (x, y, z) triples, only the first {@link #getPointCount()} are valid and
+     * the array is replaced when more targets are generated
+     */
+    public double[] getPoints() {
+        return points;
+    }
+
+    /**
+     * @return the distance along the targets of each generated target, replaced like {@link #getPoints()}, every
+     * target but the last one is at a multiple of {@link #getSpacing()}
+     */
+    public double[] getArcLengths() {
+        return arcLengths;
+    }
+
+    /**
+     * @return the index of the first target after the node, only valid for nodes whose segment was generated
+     */
+    public int getTargetStart(int nodeIdx) {
+        return targetStarts[nodeIdx];
+    }
+
+    /**
+     * @return how many segments have their targets generated, the targets of node i exist if i is below this
+     */
+    public int getGeneratedSegments() {
+        return generatedSegments;
+    }
+
+    private void generateSegment() {
+        int nodeIdx = generatedSegments++;
+        targetStarts[nodeIdx] = pointCount;
+        if (nodeIdx == nodeCount - 1) {
+            // the path ends on the node itself, not next to it
+            double x = nodePositions[nodeIdx * 3], y = nodePositions[nodeIdx * 3 + 1], z = nodePositions[nodeIdx * 3 + 2];
+            double arcLength = 0;
+            if (pointCount > 0) {
+                int last = pointCount - 1;
+                double dx = x - points[last * 3], dy = y - points[last * 3 + 1], dz = z - points[last * 3 + 2];
+                arcLength = arcLengths[last] + Math.sqrt(dx * dx + dy * dy + dz * dz);
+            }
+            addPoint(x, y, z, arcLength, PathManoeuvre.NULL);
+            targetStarts[nodeCount] = pointCount;
+            return;
+        }
+
+        double[] p1 = getAimPosition(nodeIdx);
+        double[] p2 = getAimPosition(nodeIdx + 1);
+        // the ends of the path continue in a straight line
+        double[] p0 = nodeIdx > 0 ? getAimPosition(nodeIdx - 1) : extrapolate(p1, p2);
+        double[] p3 = nodeIdx + 2 < nodeCount ? getAimPosition(nodeIdx + 2) : extrapolate(p2, p1);
+        double chord = distance(p1, p2);
+        if (chord < 1e-6) {
+            return;
+        }
+        if (pointCount == 0) {
+            System.arraycopy(p1, 0, splineEnd, 0, 3);
+        }
+
+        double[] knots = {0, 0, 0, 0};
+        knots[1] = knots[0] + Math.max(Math.sqrt(distance(p0, p1)), 1e-4);
+        knots[2] = knots[1] + Math.max(Math.sqrt(chord), 1e-4);
+        knots[3] = knots[2] + Math.max(Math.sqrt(distance(p2, p3)), 1e-4);
+
+        double spacing = getSpacing();
+        double[] sample = new double[3];
+        int steps = Math.max(2, (int) Math.ceil(chord * SPLINE_SAMPLES_PER_BLOCK));
+        for (int step = 1; step <= steps; step++) {
+            evaluateCatmullRom(p0, p1, p2, p3, knots, (double) step / steps, sample);
+            clampToCorridor(p1, p2, sample);
+            double stepLength = distance(splineEnd, sample);
+            // targets sit at fixed distances along the spline, the one at `pointCount * spacing` is next
+            while (stepLength > 0 && pointCount * spacing <= splineLength + stepLength) {
+                double arcLength = pointCount * spacing;
+                double alpha = (arcLength - splineLength) / stepLength;
+                addPoint(
+                        splineEnd[0] + (sample[0] - splineEnd[0]) * alpha,
+                        splineEnd[1] + (sample[1] - splineEnd[1]) * alpha,
+                        splineEnd[2] + (sample[2] - splineEnd[2]) * alpha,
+                        arcLength,
+                        nodeManoeuvres[nodeIdx]
+                );
+            }
+            splineLength += stepLength;
+            System.arraycopy(sample, 0, splineEnd, 0, 3);
+        }
+    }
+
+    // applies the constraints of the manoeuvre of the segment the target is on
+    private void addPoint(double x, double y, double z, double arcLength, PathManoeuvre manoeuvre) {
+        if ((pointCount + 1) * 3 > points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+            arcLengths = Arrays.copyOf(arcLengths, arcLengths.length * 2);
+        }
+        // TODO: add more Manoeuvres
+        if (manoeuvre == PathManoeuvre.WALK) {
+            y = Math.round(y);
+        }
+        int i = pointCount++;
+        points[i * 3] = x;
+        points[i * 3 + 1] = y;
+        points[i * 3 + 2] = z;
+        arcLengths[i] = arcLength;
+    }
+
+    /**
+     * Evaluates the centripetal (alpha = 0.5) Catmull-Rom spline between p1 and p2, it passes through every
+     * node without the loops and overshoots of the uniform one at sharp corners.
+     *
+     * @param knots the parameter of each control point, spaced by the square root of their distance
+     * @param u     0 at p1, 1 at p2
+     */
+    private static void evaluateCatmullRom(double[] p0, double[] p1, double[] p2, double[] p3, double[] knots, double u, double[] out) {
+        double t0 = knots[0], t1 = knots[1], t2 = knots[2], t3 = knots[3];
+        double t = t1 + (t2 - t1) * u;
+        for (int axis = 0; axis < 3; axis++) {
+            double a1 = ((t1 - t) * p0[axis] + (t - t0) * p1[axis]) / (t1 - t0);
+            double a2 = ((t2 - t) * p1[axis] + (t - t1) * p2[axis]) / (t2 - t1);
+            double a3 = ((t3 - t) * p2[axis] + (t - t2) * p3[axis]) / (t3 - t2);
+            double b1 = ((t2 - t) * a1 + (t - t0) * a2) / (t2 - t0);
+            double b2 = ((t3 - t) * a2 + (t - t1) * a3) / (t3 - t1);
+            out[axis] = ((t2 - t) * b1 + (t - t1) * b2) / (t2 - t1);
+        }
+    }
+
+    // segments were checked for collisions as straight lines, the spline may only bend CORRIDOR_RADIUS away from them
+    private void clampToCorridor(double[] from, double[] to, double[] point) {
+        double sx = to[0] - from[0], sy = to[1] - from[1], sz = to[2] - from[2];
+        double squaredLength = sx * sx + sy * sy + sz * sz;
+        double u = ((point[0] - from[0]) * sx + (point[1] - from[1]) * sy + (point[2] - from[2]) * sz) / squaredLength;
+        u = Math.max(0, Math.min(1, u));
+        double cx = from[0] + sx * u, cy = from[1] + sy * u, cz = from[2] + sz * u;
+        double dx = point[0] - cx, dy = point[1] - cy, dz = point[2] - cz;
+        double deviation = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (deviation > CORRIDOR_RADIUS) {
+            double scale = CORRIDOR_RADIUS / deviation;
+            point[0] = cx + dx * scale;
+            point[1] = cy + dy * scale;
+            point[2] = cz + dz * scale;
+        }
+    }
+
+    private static double[] extrapolate(double[] from, double[] away) {
+        return new double[]{2 * from[0] - away[0], 2 * from[1] - away[1], 2 * from[2] - away[2]};
+    }
+
+    private static double distance(double[] a, double[] b) {
+        double dx = a[0] - b[0], dy = a[1] - b[1], dz = a[2] - b[2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    // where the player aims for at the node, pushed away from unsafe neighbors
+    private double[] getAimPosition(int nodeIdx) {
+        Vec3d offset = getNodeOffset(nodeIdx);
+        return new double[]{
+                nodePositions[nodeIdx * 3] + offset.x,
+                nodePositions[nodeIdx * 3 + 1] + offset.y,
+                nodePositions[nodeIdx * 3 + 2] + offset.z
+        };
+    }
+
+    private Vec3d getNodeOffset(int nodeIdx) {
+        if (!probedNodes.get(nodeIdx)) {
+            PathNode node = new PathNode(
+                    MathHelper.floor(nodePositions[nodeIdx * 3]),
+                    MathHelper.floor(nodePositions[nodeIdx * 3 + 1]),
+                    MathHelper.floor(nodePositions[nodeIdx * 3 + 2]),
+                    nodeManoeuvres[nodeIdx]
+            );
+            Vec3d offset = getUnsafeDirection(node).multiply(0.5);
+            nodeOffsets[nodeIdx * 3] = offset.x;
+            nodeOffsets[nodeIdx * 3 + 1] = offset.y;
+            nodeOffsets[nodeIdx * 3 + 2] = offset.z;
+            probedNodes.set(nodeIdx);
+        }
+        return new Vec3d(nodeOffsets[nodeIdx * 3], nodeOffsets[nodeIdx * 3 + 1], nodeOffsets[nodeIdx * 3 + 2]);
+    }
+
+    private Vec3d getUnsafeDirection(PathNode node) {
+        Vec3d unsafePreventionDelta = new Vec3d(0, 0, 0);
+        for (PathNode neighbor : context.getHorizontalNeighborsOf(node)) {
+            if (neighbor.getManoeuvre() != PathManoeuvre.NULL) {
+                continue;
+            }
+            unsafePreventionDelta = unsafePreventionDelta.add(
+                    node.pos.subtract(neighbor.pos).toCenterPos()
+            );
+        }
+        Vec3d unsafeDirection = unsafePreventionDelta.normalize();
+        WanderingPlayerClient.getLogger().debug(
+                "node={}, unsafeDirection={}",
+                node,
+                unsafeDirection
+        );
+
+        return unsafeDirection;
+    }
+}
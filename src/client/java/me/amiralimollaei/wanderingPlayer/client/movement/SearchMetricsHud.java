@@ -0,0 +1,73 @@
+package me.amiralimollaei.wanderingPlayer.client.movement;
+
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.SearchMetrics;
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.SearchStatistics;
+import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.gui.DrawContext;
+
+/*
+Debug overlay in the top left corner of the screen, shows the metrics of the last search and
+the p50/p90/p99/max of each metric over the recent searches, hidden until toggled.
+ */
+public class SearchMetricsHud {
+    public final int MARGIN = 4;
+    public final int TEXT_COLOR = 0xFFE0E0E0;
+
+    private final MinecraftClient client;
+    private final SearchStatistics statistics;
+    public boolean isEnabled = false;
+
+    public SearchMetricsHud(MinecraftClient client, SearchStatistics statistics) {
+        this.client = client;
+        this.statistics = statistics;
+    }
+
+    public void register() {
+        HudRenderCallback.EVENT.register(this::onRenderHud);
+    }
+
+    public void setEnabled(boolean enabled) {
+        isEnabled = enabled;
+    }
+
+    private void onRenderHud(DrawContext drawContext, float tickDelta) {
+        if (!isEnabled || client.getDebugHud().shouldShowDebugHud()) {
+            return;
+        }
+        TextRenderer textRenderer = client.textRenderer;
+        int y = MARGIN;
+        SearchMetrics lastMetrics = statistics.getLastMetrics();
+        if (lastMetrics == null) {
+            drawContext.drawTextWithShadow(textRenderer, "no searches yet", MARGIN, y, TEXT_COLOR);
+            return;
+        }
+
+        String header = String.format("last search: %s %s (%d searches)",
+                statistics.getLastPathfinder(), statistics.getLastStatus(), statistics.getSearchCount());
+        drawContext.drawTextWithShadow(textRenderer, header, MARGIN, y, TEXT_COLOR);
+        y += textRenderer.fontHeight + 2;
+        for (SearchMetrics.Counter counter : SearchMetrics.Counter.values()) {
+            long[] percentiles = statistics.getPercentiles(counter);
+            String line = String.format("%s: %s  p50 %s  p90 %s  p99 %s  max %s",
+                    counter.key,
+                    format(counter, lastMetrics.get(counter)),
+                    format(counter, percentiles[0]),
+                    format(counter, percentiles[1]),
+                    format(counter, percentiles[2]),
+                    format(counter, percentiles[3]));
+            drawContext.drawTextWithShadow(textRenderer, line, MARGIN, y, TEXT_COLOR);
+            y += textRenderer.fontHeight + 1;
+        }
+    }
+
+    // wall time in milliseconds and allocations in kilobytes, counts as they are
+    private static String format(SearchMetrics.Counter counter, long value) {
+        return switch (counter) {
+            case WALL_NANOS -> String.format("%.1fms", value / 1_000_000.0);
+            case ALLOCATED_BYTES -> String.format("%dKB", value / 1024);
+            default -> Long.toString(value);
+        };
+    }
+}
@@ -7,6 +7,8 @@ public class AStarPathfinder extends AStarPathfinderBase {
     // this does NOT have to match minecraft's acceleration speed, used to penalize the pathfinder to
     // achieve the highest velocity, effectively finding paths that have smoother turns
     public final double ACCELERATION_SPEED = 0.0;
+    // reused for every expansion, so expanding a node doesn't allocate anything per neighbor
+    private final NeighborBuffer neighbors = new NeighborBuffer();
 
     public AStarPathfinder(PathNode start, PathFinderGoal goal, PathFinderContext context) {
         super(start, goal, context);
@@ -14,39 +16,42 @@ public class AStarPathfinder extends AStarPathfinderBase {
 
     public void step(PathNode current) {
         // Explore neighbors
-        for (PathNode neighbor : context.getNeighborsOf(current)) {
-            double dCost = heuristicCost(current, neighbor);
-            double tentativeGScore = gScore.getOrDefault(current.getHash(), Double.MAX_VALUE) + dCost;
+        int currentIdx = nodes.indexOf(current.getHash());
+        double currentGScore = nodes.getGScore(currentIdx);
+        double prevVelocity = current.getPrevVelocity();
+        Vec3d prevVelocityVector = current.getVelocityVector();
+        int count = context.collectNeighbors(current, neighbors);
+        for (int i = 0; i < count; i++) {
+            int x = neighbors.getX(i), y = neighbors.getY(i), z = neighbors.getZ(i);
+            if (!isInBounds(x, y, z)) {
+                continue;
+            }
+            double dCost = neighbors.getCost(i);
+            double tentativeGScore = currentGScore + dCost;
 
-            Vec3d deltaPos = neighbor.getStandingPosition().subtract(current.getStandingPosition());
-            neighbor.setPrevDelta(deltaPos);
+            int deltaX = x - current.pos.getX();
+            int deltaY = y - current.pos.getY();
+            int deltaZ = z - current.pos.getZ();
 
             // calculate the velocity that an object gains by going from current node to the neighbor node
             // regarding of the initial velocity
-            double velocityGained = Math.sqrt(2*ACCELERATION_SPEED*deltaPos.length());
+            double velocityGained = Math.sqrt(2*ACCELERATION_SPEED*dCost);
 
-            double prevVelocity = current.getPrevVelocity();
             // calculate the new velocity considering the initial velocity and the angle of the turn
-            double velocity = velocityGained + current.getVelocityVector().dotProduct(deltaPos.normalize());
-
-            neighbor.setPrevVelocity(velocity);
+            double velocity = velocityGained +
+                    (prevVelocityVector.x * deltaX + prevVelocityVector.y * deltaY + prevVelocityVector.z * deltaZ) / dCost;
 
-            //WanderingPlayerClient.getLogger().info(
-            //        "pos={} velocity={}", neighbor.pos, neighbor.getPrevVelocity()
-            //);
-
-            double prevGScore = gScore.getOrDefault(neighbor.getHash(), Double.MAX_VALUE);
+            int neighborIdx = nodes.indexOf(neighbors.getHash(i));
+            double prevGScore = neighborIdx == -1 ? NodeTable.DEFAULT_G_SCORE : nodes.getGScore(neighborIdx);
 
             if ((tentativeGScore - velocity * 0.5) < (prevGScore - prevVelocity * 0.5)) {
-                // Update path information
-                cameFrom.put(neighbor.getHash(), current);
-                gScore.put(neighbor.getHash(), tentativeGScore);
-                fScore.put(neighbor.getHash(), tentativeGScore + heuristicCost(neighbor));
-
-                // Add or update the neighbor in the open set
-                if (!openSet.contains(neighbor)) {
-                    openSet.add(neighbor);
-                }
+                // only neighbors that get a better score are turned into nodes
+                PathNode neighbor = neighbors.toNode(i);
+                neighbor.setPrevDelta(new Vec3d(deltaX, deltaY, deltaZ));
+                neighbor.setPrevVelocity(velocity);
+
+                // Update path information, add or update the neighbor in the open set
+                pushOpen(updateNode(neighbor, currentIdx, tentativeGScore));
             }
         }
     }
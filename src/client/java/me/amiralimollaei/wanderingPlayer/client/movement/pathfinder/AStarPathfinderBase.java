@@ -1,21 +1,47 @@
 package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
 
+import net.minecraft.util.math.BlockBox;
 import org.apache.commons.lang3.NotImplementedException;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
 
 public abstract class AStarPathfinderBase {
     public final PathNode start;
     public final PathFinderGoal goal;
     public final PathFinderContext context;
-    public final NodeComparator pathComparator = new NodeComparator(this);
-    public final PriorityQueue<PathNode> openSet = new PriorityQueue<>(pathComparator);
-    public final HashMap<Integer, PathNode> cameFrom = new HashMap<>();
-    public final HashMap<Integer, Double> gScore = new HashMap<>();
-    public final HashMap<Integer, Double> fScore = new HashMap<>();
+    // scores and parents of every node seen so far, keyed by the packed node position
+    public final NodeTable nodes = new NodeTable();
+    // dense indices (see `nodes`) of the nodes that are queued for expansion
+    public final IndexedNodeHeap openSet = new IndexedNodeHeap();
+    // set from other threads to stop a running search
+    private volatile boolean cancelled = false;
+
+    // search state, kept between time slices
+    public SearchBudget budget = SearchBudget.DEFAULT;
+    // if set, nodes outside of this box are never added to the open set
+    public @Nullable BlockBox bounds = null;
+    private SearchStatus status = SearchStatus.IN_PROGRESS;
+    private boolean initialized = false;
+    private long expansions = 0;
+    private long elapsedNanos = 0;
+    // the node with the lowest heuristic cost seen so far, used for partial results
+    private int bestIdx = NodeTable.NO_PARENT;
+    private double bestHeuristicCost = Double.POSITIVE_INFINITY;
+    private List<PathNode> result = null;
+
+    // what this search cost so far, expansions and wall time are kept in their own fields
+    protected final SearchMetrics metrics = new SearchMetrics();
+    // nodes that were taken from the open set, to tell re-opened nodes apart from new ones
+    private final BitSet expandedNodes = new BitSet();
+    // counters at the start of the current time slice
+    private long sliceBlockLookups;
+    private long sliceRaycasts;
+    private long sliceAllocatedBytes;
 
     public AStarPathfinderBase(PathNode start, PathFinderGoal goal, PathFinderContext context) {
         this.start = start;
@@ -35,31 +61,235 @@ public abstract class AStarPathfinderBase {
 
     public List<PathNode> reconstructPath(PathNode current) {
         List<PathNode> totalPath = new ArrayList<>();
-        while (cameFrom.containsKey(current.getHash())) {
-            totalPath.add(0, current);
-            current = cameFrom.get(current.getHash());
+        totalPath.add(current);
+        int startIdx = nodes.indexOf(start.getHash());
+        int idx = nodes.getParent(nodes.indexOf(current.getHash()));
+        while (idx != NodeTable.NO_PARENT && idx != startIdx) {
+            totalPath.add(nodes.getNode(idx));
+            idx = nodes.getParent(idx);
         }
-        totalPath.add(0, start); // Add the starting node
+        if (current.getHash() != start.getHash()) {
+            totalPath.add(start); // Add the starting node
+        }
+        Collections.reverse(totalPath);
 
         return totalPath;
     }
 
-    public List<PathNode> search() {
-        // Initialize starting point
-        openSet.add(this.start);
-        gScore.put(this.start.getHash(), 0D);
-        fScore.put(this.start.getHash(), heuristicCost(this.start));
-        while (!openSet.isEmpty()) {
-            // Retrieve and remove the node with the lowest fScore
-            PathNode current = openSet.poll();
-            // Check if the goal is reached
-            if (current.getHash() == goal.getHash()) {
-                return reconstructPath(current);
+    /**
+     * Records the node at `parentIdx` as the best known way of reaching `node`.
+     *
+     * @return the dense index of the node in {@link #nodes}
+     */
+    public int updateNode(PathNode node, int parentIdx, double gScore) {
+        int idx = nodes.getOrCreate(node.getHash());
+        nodes.setNode(idx, node);
+        nodes.setParent(idx, parentIdx);
+        double hScore = heuristicCost(node);
+        nodes.setGScore(idx, gScore);
+        nodes.setFScore(idx, gScore + hScore);
+        if (hScore < bestHeuristicCost) {
+            bestHeuristicCost = hScore;
+            bestIdx = idx;
+        }
+        return idx;
+    }
+
+    /**
+     * Queues a node for expansion, or moves it up/down the open set if it's already queued.
+     */
+    public void pushOpen(int idx) {
+        openSet.push(idx, nodes.getFScore(idx) - nodes.getNode(idx).getPrevVelocity());
+        metrics.increment(SearchMetrics.Counter.PUSHED);
+        metrics.max(SearchMetrics.Counter.PEAK_OPEN_SET, openSet.size());
+        if (expandedNodes.get(idx)) {
+            expandedNodes.clear(idx);
+            metrics.increment(SearchMetrics.Counter.REOPENED);
+        }
+    }
+
+    public void setBudget(SearchBudget budget) {
+        this.budget = budget;
+    }
+
+    public void setBounds(@Nullable BlockBox bounds) {
+        this.bounds = bounds;
+    }
+
+    public boolean isInBounds(PathNode node) {
+        return bounds == null || bounds.contains(node.pos);
+    }
+
+    public boolean isInBounds(int x, int y, int z) {
+        return bounds == null || (x >= bounds.getMinX() && x <= bounds.getMaxX() &&
+                y >= bounds.getMinY() && y <= bounds.getMaxY() &&
+                z >= bounds.getMinZ() && z <= bounds.getMaxZ());
+    }
+
+    public boolean isGoal(PathNode node) {
+        return node.getHash() == goal.getHash();
+    }
+
+    private boolean isOverBudget(long sliceStart, long now) {
+        return expansions >= budget.maxExpansions ||
+                openSet.size() >= budget.maxOpenSetSize ||
+                elapsedNanos + (now - sliceStart) >= TimeUnit.MILLISECONDS.toNanos(budget.maxWallTimeMs);
+    }
+
+    protected SearchStatus finish(SearchStatus newStatus) {
+        status = newStatus;
+        switch (newStatus) {
+            case PARTIAL -> {
+                if (bestIdx != NodeTable.NO_PARENT) {
+                    result = reconstructPath(nodes.getNode(bestIdx));
+                }
+                // a path that doesn't leave the start is useless to the executor
+                if (result != null && result.size() < 2) {
+                    result = null;
+                }
             }
-            // calculate next step
-            this.step(current);
+            case FOUND -> {}
+            default -> result = null;
         }
-        return null; // No path found
+        return status;
+    }
+
+    /**
+     * Runs the search for at most `sliceMillis` milliseconds, calling this again resumes the
+     * search where it stopped, so a search can be spread over several ticks.
+     *
+     * @param sliceMillis the maximum time to spend in this call
+     * @return the status of the search after this slice
+     */
+    public SearchStatus searchFor(long sliceMillis) {
+        if (status.isDone()) {
+            return status;
+        }
+        long sliceStart = System.nanoTime();
+        long sliceNanos = TimeUnit.MILLISECONDS.toNanos(sliceMillis);
+        startMetricsSlice();
+        try {
+            if (!initialized) {
+                // Initialize starting point
+                pushOpen(updateNode(this.start, NodeTable.NO_PARENT, 0D));
+                initialized = true;
+            }
+            while (!openSet.isEmpty()) {
+                if (cancelled) {
+                    return finish(SearchStatus.CANCELLED);
+                }
+                long now = System.nanoTime();
+                if (isOverBudget(sliceStart, now)) {
+                    return finish(SearchStatus.PARTIAL);
+                }
+                if (now - sliceStart >= sliceNanos) {
+                    return status; // resume in the next slice
+                }
+                // Retrieve and remove the node with the lowest fScore
+                int currentIdx = openSet.poll();
+                PathNode current = nodes.getNode(currentIdx);
+                expandedNodes.set(currentIdx);
+                expansions++;
+                beforeExpand(current);
+                // Check if the goal is reached
+                if (isGoal(current)) {
+                    result = reconstructPath(current);
+                    return finish(SearchStatus.FOUND);
+                }
+                // calculate next step
+                this.step(current);
+            }
+            return finish(SearchStatus.FAILED); // No path found
+        } finally {
+            elapsedNanos += System.nanoTime() - sliceStart;
+            endMetricsSlice();
+        }
+    }
+
+    /**
+     * Remembers the counters of the context and the thread, call this when a time slice of the search starts.
+     */
+    protected void startMetricsSlice() {
+        sliceBlockLookups = context.getBlockLookups();
+        sliceRaycasts = context.getRaycasts();
+        sliceAllocatedBytes = SearchMetrics.getAllocatedBytes();
+    }
+
+    /**
+     * Adds what happened since {@link #startMetricsSlice()} to the metrics of this search.
+     */
+    protected void endMetricsSlice() {
+        metrics.add(SearchMetrics.Counter.BLOCK_LOOKUPS, context.getBlockLookups() - sliceBlockLookups);
+        metrics.add(SearchMetrics.Counter.RAYCASTS, context.getRaycasts() - sliceRaycasts);
+        long allocatedBytes = SearchMetrics.getAllocatedBytes();
+        if (sliceAllocatedBytes >= 0 && allocatedBytes >= 0) {
+            metrics.add(SearchMetrics.Counter.ALLOCATED_BYTES, allocatedBytes - sliceAllocatedBytes);
+        }
+    }
+
+    /**
+     * @return the pathfinders this one hands (part of) the search to, their metrics are included in {@link #getMetrics()}
+     */
+    protected List<AStarPathfinderBase> getDelegates() {
+        return List.of();
+    }
+
+    /**
+     * @return a copy of what the search cost so far, including the searches it delegated to
+     */
+    public SearchMetrics getMetrics() {
+        SearchMetrics snapshot = metrics.copy();
+        for (AStarPathfinderBase delegate : getDelegates()) {
+            snapshot.merge(delegate.getMetrics());
+        }
+        snapshot.set(SearchMetrics.Counter.EXPANDED, getExpansions());
+        snapshot.set(SearchMetrics.Counter.WALL_NANOS, getElapsedNanos());
+        return snapshot;
+    }
+
+    /**
+     * Runs the search until it finishes or runs out of budget.
+     *
+     * @return the path to the goal, the path to the node closest to the goal if the budget ran out,
+     *         or null if there is no path
+     */
+    public List<PathNode> search() {
+        searchFor(Long.MAX_VALUE);
+        return getResult();
+    }
+
+    public List<PathNode> getResult() {
+        return result;
+    }
+
+    public SearchStatus getStatus() {
+        return status;
+    }
+
+    public boolean isPartial() {
+        return getStatus() == SearchStatus.PARTIAL;
+    }
+
+    public long getExpansions() {
+        return expansions;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Called for every node taken from the open set, before it's checked against the goal and expanded.
+     */
+    protected void beforeExpand(PathNode current) {
     }
 
     public void step(PathNode current) {
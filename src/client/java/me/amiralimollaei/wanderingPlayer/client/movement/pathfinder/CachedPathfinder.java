@@ -0,0 +1,179 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.BlockBox;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+Looks the goal up in a PathCache before running the wrapped pathfinder, a path cached for the
+same start is returned as is, and when the start lies close to a path cached for the same goal
+only a short connector onto that path is searched, the rest of the cached path is reused.
+
+when there's nothing to reuse (or the connector can't be found) the wrapped pathfinder runs as
+usual, and the path it finds is cached for the next search.
+ */
+public class CachedPathfinder extends AStarPathfinderBase {
+    // the connector search is given up (and the full search is run) after this many expansions
+    public final int MAX_CONNECTOR_EXPANSIONS = 4_000;
+    // how far (in blocks) the connector may stray from the box around the start and the join node
+    public final int CONNECTOR_MARGIN = 8;
+
+    public final AStarPathfinderBase planner;
+    public final PathCache cache;
+
+    private @Nullable AStarPathfinderBase connector = null;
+    private @Nullable PathCache.Match match = null;
+    private boolean lookedUp = false;
+    private boolean planning = false;
+    private SearchStatus cachedStatus = SearchStatus.IN_PROGRESS;
+    private @Nullable List<PathNode> cachedResult = null;
+    private long lookupNanos = 0;
+
+    public CachedPathfinder(AStarPathfinderBase planner, PathCache cache) {
+        super(planner.start, planner.goal, planner.context);
+        this.planner = planner;
+        this.cache = cache;
+    }
+
+    @Override
+    public SearchStatus searchFor(long sliceMillis) {
+        if (cachedStatus.isDone()) {
+            return cachedStatus;
+        }
+        if (isCancelled()) {
+            return finishCached(SearchStatus.CANCELLED, null);
+        }
+        long sliceStart = System.nanoTime();
+
+        if (!lookedUp) {
+            lookedUp = true;
+            List<PathNode> path = cache.get(start, goal);
+            if (path == null) {
+                match = cache.findNearby(start.pos, goal);
+            }
+            lookupNanos = System.nanoTime() - sliceStart;
+            if (path != null) {
+                return finishCached(SearchStatus.FOUND, path);
+            }
+            if (match != null) {
+                PathNode joinNode = match.joinNode();
+                if (joinNode.getHash() == start.getHash()) {
+                    // we're standing on the cached path already
+                    return finishCached(SearchStatus.FOUND, stitch(List.of(start)));
+                }
+                connector = new AStarPathfinder(start, new PathFinderGoal(joinNode.pos), context);
+                connector.setBounds(BlockBox.create(start.pos, joinNode.pos).expand(CONNECTOR_MARGIN));
+                connector.setBudget(budget.withMaxExpansions(MAX_CONNECTOR_EXPANSIONS));
+            } else {
+                planning = true;
+            }
+        }
+
+        if (!planning && connector != null) {
+            SearchStatus status = connector.searchFor(sliceMillis);
+            if (!status.isDone()) {
+                return status;
+            }
+            if (status == SearchStatus.FOUND) {
+                List<PathNode> path = stitch(connector.getResult());
+                cache.put(path, goal, context.worldView);
+                return finishCached(SearchStatus.FOUND, path);
+            }
+            if (status == SearchStatus.CANCELLED) {
+                return finishCached(SearchStatus.CANCELLED, null);
+            }
+            // the cached path can't be joined from here, search the whole way instead
+            planning = true;
+        }
+
+        long remainingMillis = sliceMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sliceStart);
+        if (remainingMillis <= 0) {
+            return SearchStatus.IN_PROGRESS; // resume in the next slice
+        }
+        SearchStatus status = planner.searchFor(remainingMillis);
+        if (!status.isDone()) {
+            return status;
+        }
+        if (status == SearchStatus.FOUND) {
+            cache.put(planner.getResult(), goal, context.worldView);
+        }
+        return finishCached(status, planner.getResult());
+    }
+
+    // appends the part of the matched path after the join node to a path that ends at the join node
+    private List<PathNode> stitch(List<PathNode> connectorPath) {
+        assert match != null;
+        List<PathNode> path = new ArrayList<>(connectorPath.size() + match.suffix().size());
+        path.addAll(connectorPath);
+        path.addAll(match.suffix());
+        return path;
+    }
+
+    private SearchStatus finishCached(SearchStatus status, @Nullable List<PathNode> result) {
+        cachedStatus = status;
+        cachedResult = status == SearchStatus.FOUND || status == SearchStatus.PARTIAL ? result : null;
+        return cachedStatus;
+    }
+
+    /**
+     * @return the wrapped pathfinder if it's incremental and the result came from it, null if the
+     *         result (or part of it) came from the cache, since there's no search state to repair then
+     */
+    public @Nullable IncrementalPathfinder getReplanner() {
+        return planning && planner instanceof IncrementalPathfinder incremental ? incremental : null;
+    }
+
+    @Override
+    public void setBudget(SearchBudget budget) {
+        super.setBudget(budget);
+        planner.setBudget(budget);
+    }
+
+    @Override
+    public void setBounds(@Nullable BlockBox bounds) {
+        super.setBounds(bounds);
+        planner.setBounds(bounds);
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        planner.cancel();
+        if (connector != null) {
+            connector.cancel();
+        }
+    }
+
+    @Override
+    protected List<AStarPathfinderBase> getDelegates() {
+        return connector == null ? List.of(planner) : List.of(connector, planner);
+    }
+
+    @Override
+    public List<PathNode> getResult() {
+        return cachedResult;
+    }
+
+    @Override
+    public SearchStatus getStatus() {
+        return cachedStatus;
+    }
+
+    @Override
+    public long getExpansions() {
+        return planner.getExpansions() + (connector == null ? 0 : connector.getExpansions());
+    }
+
+    @Override
+    public long getElapsedNanos() {
+        return lookupNanos + planner.getElapsedNanos() + (connector == null ? 0 : connector.getElapsedNanos());
+    }
+
+    @Override
+    public void step(PathNode current) {
+        // the search is delegated to the connector or the wrapped pathfinder
+    }
+}
@@ -0,0 +1,106 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.PalettedContainer;
+import org.jetbrains.annotations.Nullable;
+
+/*
+An immutable copy of the block states of a single 16x16x16 chunk section, the palette
+of the section is copied so the snapshot stays as compact as the original.
+
+snapshots are never written to after they are created, so they can be read from any
+thread without locking.
+ */
+public class ChunkSectionSnapshot {
+    // shared by all sections that only contain air
+    public static final ChunkSectionSnapshot EMPTY = new ChunkSectionSnapshot(null, true, 0);
+    // marks sections that belong to chunks that are not loaded (yet)
+    public static final ChunkSectionSnapshot UNLOADED = new ChunkSectionSnapshot(null, false, 0);
+
+    private final @Nullable PalettedContainer<BlockState> blockStates;
+    private final boolean loaded;
+    // the WorldChangeTracker version of the section at the time it was copied
+    private final long version;
+    // hash of the packed block states, computed the first time it's asked for
+    private long contentHash = 0;
+    private boolean hashed = false;
+
+    private ChunkSectionSnapshot(@Nullable PalettedContainer<BlockState> blockStates, boolean loaded, long version) {
+        this.blockStates = blockStates;
+        this.loaded = loaded;
+        this.version = version;
+    }
+
+    /**
+     * Copies the block states of a chunk section, must be called on the thread that owns the section.
+     *
+     * @param section the section to copy, null sections are treated as empty
+     * @param version the version stamp of the section
+     * @return the snapshot of the section
+     */
+    public static ChunkSectionSnapshot of(@Nullable ChunkSection section, long version) {
+        if (section == null || section.isEmpty()) {
+            return version == 0 ? EMPTY : new ChunkSectionSnapshot(null, true, version);
+        }
+        return new ChunkSectionSnapshot(section.getBlockStateContainer().copy(), true, version);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param x the local x coordinate (0-15)
+     * @param y the local y coordinate (0-15)
+     * @param z the local z coordinate (0-15)
+     * @return the block state, or null if the section is not loaded
+     */
+    public @Nullable BlockState getBlockState(int x, int y, int z) {
+        if (!loaded) {
+            return null;
+        }
+        if (blockStates == null) {
+            return Blocks.AIR.getDefaultState();
+        }
+        return blockStates.get(x, y, z);
+    }
+
+    /**
+     * Hashes the palette and the packed storage of the section instead of its blocks one by one, so it's
+     * cheap, it doesn't depend on the session, but the same blocks with their palette in another order
+     * hash differently.
+     *
+     * @return a hash of the block states of the section
+     */
+    public synchronized long getContentHash() {
+        if (!hashed) {
+            contentHash = computeContentHash();
+            hashed = true;
+        }
+        return contentHash;
+    }
+
+    private long computeContentHash() {
+        if (blockStates == null) {
+            return loaded ? 0 : -1;
+        }
+        PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer(blockStates.getPacketSize()));
+        blockStates.writePacket(buf);
+        long hash = 0xCBF29CE484222325L;
+        while (buf.readableBytes() >= Long.BYTES) {
+            hash = (hash ^ buf.readLong()) * 0x100000001B3L;
+        }
+        while (buf.isReadable()) {
+            hash = (hash ^ buf.readByte()) * 0x100000001B3L;
+        }
+        return hash;
+    }
+}
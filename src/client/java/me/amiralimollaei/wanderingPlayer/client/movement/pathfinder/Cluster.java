@@ -0,0 +1,42 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+A chunk column seen as a single node group of the hierarchical planner, it holds the
+portals on its borders and the cost of walking between each pair of them inside the
+chunk. clusters are immutable, a changed chunk gets a freshly built cluster.
+ */
+public class Cluster {
+    public final int chunkX;
+    public final int chunkZ;
+    public final List<ClusterPortal> portals;
+    private final Map<Long, ClusterPortal> portalsByKey = new HashMap<>();
+    // false if a flood ran out of budget before exhausting the cluster, some infinite costs may be wrong
+    public final boolean complete;
+    // costs[i][j] is the cost of walking from portal i to portal j, infinite if j can't be reached
+    private final double[][] costs;
+
+    public Cluster(int chunkX, int chunkZ, List<ClusterPortal> portals, double[][] costs, boolean complete) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.portals = portals;
+        this.costs = costs;
+        this.complete = complete;
+        for (ClusterPortal portal : portals) {
+            portalsByKey.put(portal.key, portal);
+        }
+    }
+
+    public @Nullable ClusterPortal getPortal(long key) {
+        return portalsByKey.get(key);
+    }
+
+    public double getCost(ClusterPortal from, ClusterPortal to) {
+        return costs[from.index][to.index];
+    }
+}
@@ -0,0 +1,247 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+The abstract graph of the hierarchical planner, every chunk column is a cluster and
+clusters are connected through portals, walkable cells on both sides of a chunk border.
+
+clusters are built lazily the first time a search needs them and are dropped again
+when the WorldChangeTracker reports a change in them or in a neighboring chunk (the
+portals on a border depend on both chunks).
+ */
+public class ClusterGraph implements WorldChangeTracker.Listener {
+    // limits the searches used to find the cost of walking between two portals, a few layers of a chunk, no time
+    // limit so the costs of a cluster don't depend on how busy the machine was when it was built
+    public final SearchBudget PORTAL_SEARCH_BUDGET = new SearchBudget(2_048, Long.MAX_VALUE, 4_096);
+    // how far above and below the cells it connects a flood may go, the rest of the column is never needed
+    public final int FLOOD_HEIGHT_MARGIN = 8;
+    // height differences allowed when crossing a border: straight, one block up or one block down
+    private static final int[] ENTRANCE_STEPS = {0, 1, -1};
+
+    private final WorldChangeTracker tracker;
+    private final ConcurrentHashMap<Long, Cluster> clusters = new ConcurrentHashMap<>();
+
+    public ClusterGraph(WorldChangeTracker tracker) {
+        this.tracker = tracker;
+        tracker.addListener(this);
+    }
+
+    /**
+     * @return the part of a cluster a search between cells at heights minY to maxY is kept in
+     */
+    public BlockBox getFloodBounds(PathFinderContext context, int chunkX, int chunkZ, int minY, int maxY) {
+        return new BlockBox(
+                chunkX << 4, Math.max(context.getWorldMinHeight(), minY - FLOOD_HEIGHT_MARGIN), chunkZ << 4,
+                (chunkX << 4) + 15, Math.min(context.getWorldMaxHeight() - 1, maxY + FLOOD_HEIGHT_MARGIN), (chunkZ << 4) + 15
+        );
+    }
+
+    public Cluster getCluster(PathFinderContext context, int chunkX, int chunkZ) {
+        long key = ChunkPos.toLong(chunkX, chunkZ);
+        Cluster cluster = clusters.get(key);
+        if (cluster != null) {
+            return cluster;
+        }
+
+        long[] versions = getNeighborhoodVersions(chunkX, chunkZ);
+        cluster = buildCluster(context, chunkX, chunkZ);
+        // only keep the cluster if none of the chunks it was built from changed in the meantime, a cluster whose floods
+        // ran out of budget may be missing links and is built again the next time it's needed
+        if (cluster.complete && Arrays.equals(versions, getNeighborhoodVersions(chunkX, chunkZ))) {
+            clusters.put(key, cluster);
+        }
+        return cluster;
+    }
+
+    public Cluster getClusterAt(PathFinderContext context, BlockPos pos) {
+        return getCluster(context, ChunkSectionPos.getSectionCoord(pos.getX()), ChunkSectionPos.getSectionCoord(pos.getZ()));
+    }
+
+    private long[] getNeighborhoodVersions(int chunkX, int chunkZ) {
+        return new long[]{
+                tracker.getChunkVersion(chunkX, chunkZ),
+                tracker.getChunkVersion(chunkX + 1, chunkZ),
+                tracker.getChunkVersion(chunkX - 1, chunkZ),
+                tracker.getChunkVersion(chunkX, chunkZ + 1),
+                tracker.getChunkVersion(chunkX, chunkZ - 1),
+        };
+    }
+
+    private Cluster buildCluster(PathFinderContext context, int chunkX, int chunkZ) {
+        // cell key -> portal, a corner cell can lead into two clusters
+        Map<Long, ClusterPortal> portalsByKey = new HashMap<>();
+        List<ClusterPortal> portals = new ArrayList<>();
+
+        // the entrances of a border are always computed from the west/north chunk, so both sides agree on them
+        addPortals(context, chunkX, chunkZ, portals, portalsByKey, findBorderEntrances(context, chunkX, chunkZ, true), 0);
+        addPortals(context, chunkX, chunkZ, portals, portalsByKey, findBorderEntrances(context, chunkX - 1, chunkZ, true), 1);
+        addPortals(context, chunkX, chunkZ, portals, portalsByKey, findBorderEntrances(context, chunkX, chunkZ, false), 0);
+        addPortals(context, chunkX, chunkZ, portals, portalsByKey, findBorderEntrances(context, chunkX, chunkZ - 1, false), 1);
+
+        double[][] costs = new double[portals.size()][];
+        boolean complete = true;
+        for (ClusterPortal portal : portals) {
+            FloodPathfinder flood = flood(context, portal.pos, chunkX, chunkZ, portals);
+            complete &= flood.getStatus() != SearchStatus.PARTIAL;
+            costs[portal.index] = getCosts(flood, portals);
+        }
+        return new Cluster(chunkX, chunkZ, portals, costs, complete);
+    }
+
+    private void addPortals(PathFinderContext context, int chunkX, int chunkZ, List<ClusterPortal> portals,
+                            Map<Long, ClusterPortal> portalsByKey, List<BlockPos[]> entrances, int insideIdx) {
+        for (BlockPos[] entrance : entrances) {
+            BlockPos inside = entrance[insideIdx];
+            BlockPos outside = entrance[1 - insideIdx];
+            long key = PathNode.hash(inside.getX(), inside.getY(), inside.getZ());
+            ClusterPortal portal = portalsByKey.get(key);
+            if (portal == null) {
+                portal = new ClusterPortal(inside, chunkX, chunkZ, portals.size());
+                portals.add(portal);
+                portalsByKey.put(key, portal);
+            }
+            portal.exits.add(outside);
+        }
+    }
+
+    /**
+     * Finds the entrances on the border between a chunk and its east (alongX) or south neighbor,
+     * consecutive walkable cells at the same height form one entrance, represented by its middle cell.
+     *
+     * @return pairs of [cell in the west/north chunk, cell in the east/south chunk]
+     */
+    private List<BlockPos[]> findBorderEntrances(PathFinderContext context, int chunkX, int chunkZ, boolean alongX) {
+        List<BlockPos[]> entrances = new ArrayList<>();
+        BlockPos.Mutable low = new BlockPos.Mutable();
+        BlockPos.Mutable high = new BlockPos.Mutable();
+        int lowEdge = alongX ? (chunkX << 4) + 15 : (chunkZ << 4) + 15;
+        int rowStart = alongX ? chunkZ << 4 : chunkX << 4;
+
+        for (int y = context.getWorldMinHeight(); y < context.getWorldMaxHeight(); y++) {
+            int runStart = -1;
+            int runDeltaY = 0;
+            for (int i = 0; i <= 16; i++) {
+                int deltaY = Integer.MIN_VALUE;
+                if (i < 16) {
+                    if (alongX) {
+                        low.set(lowEdge, y, rowStart + i);
+                    } else {
+                        low.set(rowStart + i, y, lowEdge);
+                    }
+                    if (context.canPlayerWalkAt(low)) {
+                        for (int dy : ENTRANCE_STEPS) {
+                            high.set(low.getX() + (alongX ? 1 : 0), y + dy, low.getZ() + (alongX ? 0 : 1));
+                            if (context.canPlayerWalkAt(high)) {
+                                deltaY = dy;
+                                break;
+                            }
+                        }
+                    }
+                }
+
+                if (runStart != -1 && deltaY != runDeltaY) {
+                    int middle = rowStart + (runStart + i - 1) / 2;
+                    BlockPos lowCell = alongX ? new BlockPos(lowEdge, y, middle) : new BlockPos(middle, y, lowEdge);
+                    BlockPos highCell = lowCell.add(alongX ? 1 : 0, runDeltaY, alongX ? 0 : 1);
+                    entrances.add(new BlockPos[]{lowCell, highCell});
+                    runStart = -1;
+                }
+                if (runStart == -1 && deltaY != Integer.MIN_VALUE) {
+                    runStart = i;
+                    runDeltaY = deltaY;
+                }
+            }
+        }
+        return entrances;
+    }
+
+    /**
+     * Floods the cluster from a cell and returns the cost of reaching each of the given portals,
+     * infinite for portals that can't be reached without leaving the cluster.
+     * the flood stays between the lowest and highest of the cells (plus FLOOD_HEIGHT_MARGIN) and stops
+     * once every portal it can reach was found or PORTAL_SEARCH_BUDGET runs out.
+     */
+    public double[] costsFrom(PathFinderContext context, BlockPos from, int chunkX, int chunkZ, List<ClusterPortal> portals) {
+        return getCosts(flood(context, from, chunkX, chunkZ, portals), portals);
+    }
+
+    private FloodPathfinder flood(PathFinderContext context, BlockPos from, int chunkX, int chunkZ, List<ClusterPortal> portals) {
+        int minY = from.getY(), maxY = from.getY();
+        Set<Long> targets = new HashSet<>();
+        for (ClusterPortal portal : portals) {
+            minY = Math.min(minY, portal.pos.getY());
+            maxY = Math.max(maxY, portal.pos.getY());
+            targets.add(portal.key);
+        }
+        FloodPathfinder flood = new FloodPathfinder(new PathNode(from, PathManoeuvre.WALK), context, targets);
+        flood.setBounds(getFloodBounds(context, chunkX, chunkZ, minY, maxY));
+        flood.setBudget(PORTAL_SEARCH_BUDGET);
+        flood.search();
+        return flood;
+    }
+
+    private static double[] getCosts(FloodPathfinder flood, List<ClusterPortal> portals) {
+        double[] costs = new double[portals.size()];
+        for (ClusterPortal portal : portals) {
+            int idx = flood.nodes.indexOf(portal.key);
+            costs[portal.index] = idx == -1 ? Double.POSITIVE_INFINITY : flood.nodes.getGScore(idx);
+        }
+        return costs;
+    }
+
+    public double[] costsFrom(PathFinderContext context, BlockPos from, Cluster cluster) {
+        return costsFrom(context, from, cluster.chunkX, cluster.chunkZ, cluster.portals);
+    }
+
+    public int size() {
+        return clusters.size();
+    }
+
+    @Override
+    public void onSectionChanged(int sectionX, int sectionY, int sectionZ) {
+        clusters.remove(ChunkPos.toLong(sectionX, sectionZ));
+        clusters.remove(ChunkPos.toLong(sectionX + 1, sectionZ));
+        clusters.remove(ChunkPos.toLong(sectionX - 1, sectionZ));
+        clusters.remove(ChunkPos.toLong(sectionX, sectionZ + 1));
+        clusters.remove(ChunkPos.toLong(sectionX, sectionZ - 1));
+    }
+
+    @Override
+    public void onReset() {
+        clusters.clear();
+    }
+
+    // Dijkstra over the cluster: no heuristic, it runs until every target was expanded or the bounds are exhausted
+    private static class FloodPathfinder extends AStarPathfinder {
+        private final Set<Long> remaining;
+
+        public FloodPathfinder(PathNode start, PathFinderContext context, Set<Long> targets) {
+            super(start, new PathFinderGoal(start.pos), context);
+            this.remaining = targets;
+        }
+
+        @Override
+        public double heuristicCost(PathNode node) {
+            return 0;
+        }
+
+        @Override
+        public boolean isGoal(PathNode node) {
+            // the costs of expanded nodes are final, once all targets are expanded there is nothing left to learn
+            return remaining.remove(node.getHash()) && remaining.isEmpty();
+        }
+    }
+}
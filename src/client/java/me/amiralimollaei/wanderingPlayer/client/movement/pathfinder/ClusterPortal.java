@@ -0,0 +1,26 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// a walkable cell on the border of a cluster that leads into one or more neighboring clusters
+public class ClusterPortal {
+    public final BlockPos pos;
+    public final long key;
+    public final int chunkX;
+    public final int chunkZ;
+    // index of the portal in its cluster, used to look up intra-cluster costs
+    public final int index;
+    // the walkable cells in neighboring clusters this portal leads to
+    public final List<BlockPos> exits = new ArrayList<>();
+
+    public ClusterPortal(BlockPos pos, int chunkX, int chunkZ, int index) {
+        this.pos = pos;
+        this.key = PathNode.hash(pos.getX(), pos.getY(), pos.getZ());
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.index = index;
+    }
+}
@@ -0,0 +1,227 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+A path packed into a few bytes per move: the start position followed by runs of moves, a run is
+a header (how many times the move repeats and the manoeuvre of the nodes it leads to) and the
+move itself (dx, dy, dz), all as variable length integers, so straight stretches of a grid path
+take a single run and a multi-thousand block route fits in a few kilobytes.
+
+paths are immutable, read them with a Cursor.
+ */
+public class CompactPath {
+    private static final PathManoeuvre[] MANOEUVRES = PathManoeuvre.values();
+    // bits of the run header used by the manoeuvre, the rest is the run length
+    private static final int MANOEUVRE_BITS = 3;
+
+    public final int startX;
+    public final int startY;
+    public final int startZ;
+    public final PathManoeuvre startManoeuvre;
+    private final byte[] runs;
+    private final int size;
+
+    private CompactPath(int startX, int startY, int startZ, PathManoeuvre startManoeuvre, byte[] runs, int size) {
+        this.startX = startX;
+        this.startY = startY;
+        this.startZ = startZ;
+        this.startManoeuvre = startManoeuvre;
+        this.runs = runs;
+        this.size = size;
+    }
+
+    public static CompactPath encode(List<PathNode> nodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("a path needs at least one node");
+        }
+        PathNode start = nodes.get(0);
+        Writer writer = new Writer();
+        int runLength = 0;
+        int runDx = 0, runDy = 0, runDz = 0;
+        PathManoeuvre runManoeuvre = null;
+        for (int i = 1; i < nodes.size(); i++) {
+            PathNode from = nodes.get(i - 1), to = nodes.get(i);
+            int dx = to.pos.getX() - from.pos.getX();
+            int dy = to.pos.getY() - from.pos.getY();
+            int dz = to.pos.getZ() - from.pos.getZ();
+            if (runLength > 0 && dx == runDx && dy == runDy && dz == runDz && to.getManoeuvre() == runManoeuvre) {
+                runLength++;
+                continue;
+            }
+            if (runLength > 0) {
+                writer.writeRun(runLength, runManoeuvre, runDx, runDy, runDz);
+            }
+            runLength = 1;
+            runDx = dx;
+            runDy = dy;
+            runDz = dz;
+            runManoeuvre = to.getManoeuvre();
+        }
+        if (runLength > 0) {
+            writer.writeRun(runLength, runManoeuvre, runDx, runDy, runDz);
+        }
+        return new CompactPath(
+                start.pos.getX(), start.pos.getY(), start.pos.getZ(), start.getManoeuvre(),
+                writer.toByteArray(), nodes.size()
+        );
+    }
+
+    /**
+     * @return how many nodes the path has
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return how many bytes the encoded moves take
+     */
+    public int getEncodedSize() {
+        return runs.length;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Walks the path up to the node, O(number of runs), prefer a Cursor to read the whole path.
+     */
+    public PathNode getNode(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        Cursor cursor = cursor();
+        while (cursor.next() && cursor.getIndex() < index) {
+            // skip to the node
+        }
+        return cursor.toNode();
+    }
+
+    public List<PathNode> toNodes() {
+        List<PathNode> nodes = new ArrayList<>(size);
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            nodes.add(cursor.toNode());
+        }
+        return nodes;
+    }
+
+    /**
+     * Reads the nodes of a path in order without allocating, call {@link #next()} before reading the first node.
+     */
+    public class Cursor {
+        private int offset = 0;
+        private int index = -1;
+        private int remaining = 0;
+        private int dx, dy, dz;
+        private int x = startX, y = startY, z = startZ;
+        private PathManoeuvre manoeuvre = startManoeuvre;
+
+        /**
+         * @return true if the cursor moved to the next node, false at the end of the path
+         */
+        public boolean next() {
+            if (index + 1 >= size) {
+                return false;
+            }
+            index++;
+            if (index == 0) {
+                return true;
+            }
+            if (remaining == 0) {
+                int header = readVarInt();
+                manoeuvre = MANOEUVRES[header & ((1 << MANOEUVRE_BITS) - 1)];
+                remaining = (header >>> MANOEUVRE_BITS) + 1;
+                dx = readSignedVarInt();
+                dy = readSignedVarInt();
+                dz = readSignedVarInt();
+            }
+            remaining--;
+            x += dx;
+            y += dy;
+            z += dz;
+            return true;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = runs[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        private int readSignedVarInt() {
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getZ() {
+            return z;
+        }
+
+        public PathManoeuvre getManoeuvre() {
+            return manoeuvre;
+        }
+
+        public PathNode toNode() {
+            return new PathNode(x, y, z, manoeuvre);
+        }
+    }
+
+    private static class Writer {
+        private byte[] bytes = new byte[64];
+        private int length = 0;
+
+        void writeRun(int runLength, PathManoeuvre manoeuvre, int dx, int dy, int dz) {
+            writeVarInt((runLength - 1) << MANOEUVRE_BITS | manoeuvre.ordinal());
+            writeSignedVarInt(dx);
+            writeSignedVarInt(dy);
+            writeSignedVarInt(dz);
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((byte) value);
+        }
+
+        // zigzag, so small negative moves take a single byte too
+        private void writeSignedVarInt(int value) {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        private void write(byte b) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = b;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
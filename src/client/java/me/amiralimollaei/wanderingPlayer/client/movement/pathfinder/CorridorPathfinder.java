@@ -0,0 +1,177 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+A* kept to a corridor of the NavMesh: the regions between the start and the goal are searched
+first (a few hundred regions instead of tens of thousands of blocks), then the block level
+search only expands cells of those regions, of the regions right next to them and cells the
+mesh doesn't cover (water, sections that aren't built yet).
+
+the mesh and the block level moves don't agree everywhere, if the search fails inside the
+corridor it's repeated without it, so the corridor never makes a reachable goal unreachable.
+the same happens right away if either end isn't on the mesh or the regions have no route.
+ */
+public class CorridorPathfinder extends AStarPathfinderBase {
+    // the region search gives up after expanding this many regions
+    public final int MAX_CORRIDOR_EXPANSIONS = 5_000;
+
+    public final NavMesh mesh;
+
+    private @Nullable AStarPathfinderBase planner = null;
+    // the search inside the corridor, kept for the metrics once it's replaced by an unrestricted one
+    private @Nullable AStarPathfinderBase restrictedPlanner = null;
+    private boolean restricted = false;
+    private SearchStatus corridorStatus = SearchStatus.IN_PROGRESS;
+    private @Nullable List<PathNode> corridorResult = null;
+    private long corridorNanos = 0;
+
+    public CorridorPathfinder(PathNode start, PathFinderGoal goal, PathFinderContext context, NavMesh mesh) {
+        super(start, goal, context);
+        this.mesh = mesh;
+    }
+
+    /**
+     * @return the keys of the regions along the route and of the regions next to them, null if there's no route
+     */
+    public @Nullable Set<Long> findCorridor() {
+        List<NavRegion> route = mesh.findCorridor(start.pos, goal.getTarget(), MAX_CORRIDOR_EXPANSIONS);
+        if (route == null) {
+            return null;
+        }
+        Set<Long> corridor = new HashSet<>();
+        for (NavRegion region : route) {
+            corridor.add(region.getKey());
+            // a little room on both sides, the block level path may cut corners through the neighbors
+            for (NavMesh.Edge edge : mesh.getEdges(region)) {
+                corridor.add(edge.region().getKey());
+            }
+        }
+        return corridor;
+    }
+
+    private AStarPathfinderBase createPlanner(@Nullable Set<Long> corridor) {
+        AStarPathfinderBase created = corridor == null
+                ? new AStarPathfinder(start, goal, context)
+                : new RestrictedPathfinder(start, goal, context, mesh, corridor);
+        created.setBudget(budget);
+        created.setBounds(bounds);
+        return created;
+    }
+
+    @Override
+    public SearchStatus searchFor(long sliceMillis) {
+        if (corridorStatus.isDone()) {
+            return corridorStatus;
+        }
+        if (isCancelled()) {
+            return finishCorridor(SearchStatus.CANCELLED, null);
+        }
+
+        long sliceStart = System.nanoTime();
+        if (planner == null) {
+            long startTime = System.nanoTime();
+            startMetricsSlice();
+            Set<Long> corridor = findCorridor();
+            endMetricsSlice();
+            corridorNanos = System.nanoTime() - startTime;
+            restricted = corridor != null;
+            planner = createPlanner(corridor);
+        }
+
+        SearchStatus status = planner.searchFor(sliceMillis);
+        if (!status.isDone()) {
+            return status;
+        }
+        if (restricted && status == SearchStatus.FAILED) {
+            // nothing inside the corridor, search everything with what is left of the slice
+            restrictedPlanner = planner;
+            restricted = false;
+            planner = createPlanner(null);
+            long remainingMillis = sliceMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sliceStart);
+            return remainingMillis > 0 ? searchFor(remainingMillis) : corridorStatus;
+        }
+        return finishCorridor(status, planner.getResult());
+    }
+
+    private SearchStatus finishCorridor(SearchStatus status, @Nullable List<PathNode> result) {
+        corridorStatus = status;
+        corridorResult = status == SearchStatus.FOUND || status == SearchStatus.PARTIAL ? result : null;
+        return corridorStatus;
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        if (planner != null) {
+            planner.cancel();
+        }
+    }
+
+    @Override
+    protected List<AStarPathfinderBase> getDelegates() {
+        if (planner == null) {
+            return List.of();
+        }
+        return restrictedPlanner == null ? List.of(planner) : List.of(restrictedPlanner, planner);
+    }
+
+    @Override
+    public List<PathNode> getResult() {
+        return corridorResult;
+    }
+
+    @Override
+    public SearchStatus getStatus() {
+        return corridorStatus;
+    }
+
+    @Override
+    public long getExpansions() {
+        long expansions = 0;
+        for (AStarPathfinderBase delegate : getDelegates()) {
+            expansions += delegate.getExpansions();
+        }
+        return expansions;
+    }
+
+    @Override
+    public long getElapsedNanos() {
+        long elapsed = corridorNanos;
+        for (AStarPathfinderBase delegate : getDelegates()) {
+            elapsed += delegate.getElapsedNanos();
+        }
+        return elapsed;
+    }
+
+    @Override
+    public void step(PathNode current) {
+        // the block level search is delegated to the planner
+    }
+
+    // A* that only expands cells of the corridor and cells the mesh doesn't cover
+    private static class RestrictedPathfinder extends AStarPathfinder {
+        private final NavMesh mesh;
+        private final Set<Long> corridor;
+
+        RestrictedPathfinder(PathNode start, PathFinderGoal goal, PathFinderContext context, NavMesh mesh, Set<Long> corridor) {
+            super(start, goal, context);
+            this.mesh = mesh;
+            this.corridor = corridor;
+        }
+
+        @Override
+        public boolean isInBounds(int x, int y, int z) {
+            if (!super.isInBounds(x, y, z)) {
+                return false;
+            }
+            NavRegion region = mesh.getRegionAt(x, y, z);
+            return region == null || corridor.contains(region.getKey());
+        }
+    }
+}
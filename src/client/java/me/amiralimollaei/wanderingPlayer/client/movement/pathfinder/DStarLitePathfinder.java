@@ -0,0 +1,383 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+D* Lite (Koenig & Likhachev) is an incremental variant of A*, it searches backwards from the
+goal to the start and keeps its search tree after the first plan, when blocks change only
+the nodes around them are updated and the search repairs the affected part of the tree, which
+is usually much cheaper than planning from scratch.
+
+the first plan costs about as much as a regular A* search, so it's worth it for paths that
+are executed while the world changes around the player. when the budget runs out before the
+tree reaches the start, a short forward search towards the settled node closest to the start
+gives the best path found so far, like the PARTIAL results of the other pathfinders.
+ */
+public class DStarLitePathfinder extends AStarPathfinderBase implements IncrementalPathfinder {
+    // nodes up to this far from a changed block may have different neighbors now
+    public final int CHANGE_RADIUS_XZ = 2;
+    public final int CHANGE_RADIUS_DOWN = 2;
+    public final int CHANGE_RADIUS_UP = 6;
+    // the forward search that gives a partial path when the budget runs out gets this fraction of the budget
+    public final int PARTIAL_BUDGET_DIVISOR = 4;
+
+    private PathNode currentStart;
+    private PathNode lastStart;
+    private double keyModifier = 0;
+    // g values live in `nodes`, rhs values and the second part of the keys are kept here, by node index
+    private double[] rhs = new double[1024];
+    private double[] secondaryKeys = new double[1024];
+
+    private SearchStatus incrementalStatus = SearchStatus.IN_PROGRESS;
+    private @Nullable List<PathNode> incrementalResult = null;
+    private boolean initialized = false;
+    private long expansions = 0;
+    private long elapsedNanos = 0;
+
+    public DStarLitePathfinder(PathNode start, PathFinderGoal goal, PathFinderContext context) {
+        super(start, goal, context);
+        this.currentStart = start;
+        this.lastStart = start;
+    }
+
+    private double distance(PathNode from, PathNode to) {
+        return from.distanceTo(to);
+    }
+
+    private int getOrCreateNode(PathNode node) {
+        int idx = nodes.indexOf(node.getHash());
+        if (idx != -1) {
+            return idx;
+        }
+        idx = nodes.getOrCreate(node.getHash());
+        nodes.setNode(idx, node);
+        nodes.setGScore(idx, Double.POSITIVE_INFINITY);
+        if (idx >= rhs.length) {
+            int oldLength = rhs.length;
+            rhs = Arrays.copyOf(rhs, Math.max(idx + 1, oldLength * 2));
+            secondaryKeys = Arrays.copyOf(secondaryKeys, rhs.length);
+        }
+        rhs[idx] = Double.POSITIVE_INFINITY;
+        return idx;
+    }
+
+    private boolean isGoalIdx(int idx) {
+        return nodes.getKey(idx) == goal.getHash();
+    }
+
+    // the first part of the key, the second part is min(g, rhs)
+    private double primaryKey(int idx) {
+        double value = Math.min(nodes.getGScore(idx), rhs[idx]);
+        return value + distance(currentStart, nodes.getNode(idx)) + keyModifier;
+    }
+
+    private static int compareKeys(double primary1, double secondary1, double primary2, double secondary2) {
+        int result = Double.compare(primary1, primary2);
+        return result != 0 ? result : Double.compare(secondary1, secondary2);
+    }
+
+    private void updateVertex(int idx) {
+        double g = nodes.getGScore(idx);
+        if (g != rhs[idx]) {
+            secondaryKeys[idx] = Math.min(g, rhs[idx]);
+            openSet.push(idx, primaryKey(idx));
+            metrics.increment(SearchMetrics.Counter.PUSHED);
+            metrics.max(SearchMetrics.Counter.PEAK_OPEN_SET, openSet.size());
+        } else if (openSet.contains(idx)) {
+            openSet.remove(idx);
+        }
+    }
+
+    // rhs(u) = min over successors s of c(u, s) + g(s)
+    private double computeRhs(PathNode node) {
+        double best = Double.POSITIVE_INFINITY;
+        for (PathNode successor : context.getNeighborsOf(node)) {
+            int successorIdx = nodes.indexOf(successor.getHash());
+            if (successorIdx == -1) {
+                continue; // g is infinite
+            }
+            best = Math.min(best, distance(node, successor) + nodes.getGScore(successorIdx));
+        }
+        return best;
+    }
+
+    private void initialize() {
+        int goalIdx = getOrCreateNode(new PathNode(goal.getTarget(), PathManoeuvre.WALK));
+        rhs[goalIdx] = 0;
+        updateVertex(goalIdx);
+        initialized = true;
+    }
+
+    /**
+     * Expands nodes until the start is consistent, or the slice/budget runs out.
+     *
+     * @return true if the shortest path to the start is known
+     */
+    private boolean computeShortestPath(long sliceNanos) {
+        long sliceStart = System.nanoTime();
+        int startIdx = getOrCreateNode(currentStart);
+        while (!openSet.isEmpty()) {
+            int topIdx = openSet.peek();
+            double topPrimary = openSet.peekPriority();
+            double topSecondary = secondaryKeys[topIdx];
+            startIdx = getOrCreateNode(currentStart);
+            double startSecondary = Math.min(nodes.getGScore(startIdx), rhs[startIdx]);
+            if (compareKeys(topPrimary, topSecondary, primaryKey(startIdx), startSecondary) >= 0 &&
+                    rhs[startIdx] <= nodes.getGScore(startIdx)) {
+                return true;
+            }
+            if (isCancelled() || expansions >= budget.maxExpansions || openSet.size() >= budget.maxOpenSetSize) {
+                return false;
+            }
+            long now = System.nanoTime();
+            if (now - sliceStart >= sliceNanos ||
+                    elapsedNanos + (now - sliceStart) >= TimeUnit.MILLISECONDS.toNanos(budget.maxWallTimeMs)) {
+                return false;
+            }
+
+            expansions++;
+            PathNode node = nodes.getNode(topIdx);
+            double newPrimary = primaryKey(topIdx);
+            double newSecondary = Math.min(nodes.getGScore(topIdx), rhs[topIdx]);
+            if (compareKeys(topPrimary, topSecondary, newPrimary, newSecondary) < 0) {
+                // the key is outdated (the start moved), queue it again with the new key
+                secondaryKeys[topIdx] = newSecondary;
+                openSet.push(topIdx, newPrimary);
+            } else if (nodes.getGScore(topIdx) > rhs[topIdx]) {
+                // over-consistent: settle the node and propagate to its predecessors
+                nodes.setGScore(topIdx, rhs[topIdx]);
+                openSet.poll();
+                for (PathNode predecessor : context.getPredecessorsOf(node)) {
+                    int predecessorIdx = getOrCreateNode(predecessor);
+                    if (!isGoalIdx(predecessorIdx)) {
+                        rhs[predecessorIdx] = Math.min(rhs[predecessorIdx], distance(predecessor, node) + nodes.getGScore(topIdx));
+                    }
+                    updateVertex(predecessorIdx);
+                }
+            } else {
+                // under-consistent: reset the node and everything that depended on it
+                double oldG = nodes.getGScore(topIdx);
+                nodes.setGScore(topIdx, Double.POSITIVE_INFINITY);
+                List<PathNode> affected = context.getPredecessorsOf(node);
+                affected.add(node);
+                for (PathNode predecessor : affected) {
+                    int predecessorIdx = getOrCreateNode(predecessor);
+                    if (!isGoalIdx(predecessorIdx) &&
+                            (predecessorIdx == topIdx || rhs[predecessorIdx] == distance(predecessor, node) + oldG)) {
+                        rhs[predecessorIdx] = computeRhs(nodes.getNode(predecessorIdx));
+                    }
+                    updateVertex(predecessorIdx);
+                }
+            }
+        }
+        startIdx = getOrCreateNode(currentStart);
+        return rhs[startIdx] != Double.POSITIVE_INFINITY && rhs[startIdx] <= nodes.getGScore(startIdx);
+    }
+
+    // follows the cheapest successors from a node to the goal
+    private @Nullable List<PathNode> extractPath(PathNode from) {
+        List<PathNode> path = new ArrayList<>();
+        PathNode node = from;
+        path.add(node);
+        int maxLength = nodes.size();
+        while (!isGoal(node)) {
+            if (path.size() > maxLength) {
+                return null; // the tree has a loop, it's not consistent yet
+            }
+            PathNode best = null;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (PathNode successor : context.getNeighborsOf(node)) {
+                int successorIdx = nodes.indexOf(successor.getHash());
+                if (successorIdx == -1) {
+                    continue;
+                }
+                double cost = distance(node, successor) + nodes.getGScore(successorIdx);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = successor;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            path.add(best);
+            node = best;
+        }
+        return path;
+    }
+
+    /**
+     * The tree grown from the goal doesn't reach the start, so there's no path to follow yet, instead a forward
+     * search (with a fraction of the budget) leads towards the settled node closest to the start, and on to the
+     * goal through the tree if it gets there.
+     *
+     * @return the best path found so far, null if nothing was settled or the forward search found nothing
+     */
+    private @Nullable List<PathNode> findPartialPath() {
+        int closestIdx = -1;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (int idx = 0; idx < nodes.size(); idx++) {
+            double g = nodes.getGScore(idx);
+            if (g == Double.POSITIVE_INFINITY || g != rhs[idx]) {
+                continue; // not settled, its cost to the goal isn't known
+            }
+            double distance = distance(currentStart, nodes.getNode(idx));
+            if (distance < closestDistance) {
+                closestDistance = distance;
+                closestIdx = idx;
+            }
+        }
+        if (closestIdx == -1) {
+            return null;
+        }
+
+        PathNode closest = nodes.getNode(closestIdx);
+        AStarPathfinder connector = new AStarPathfinder(currentStart, new PathFinderGoal(closest.pos), context);
+        connector.setBounds(bounds);
+        connector.setBudget(budget
+                .withMaxExpansions(Math.max(1, budget.maxExpansions / PARTIAL_BUDGET_DIVISOR))
+                .withMaxWallTimeMs(Math.max(1, budget.maxWallTimeMs / PARTIAL_BUDGET_DIVISOR)));
+        List<PathNode> path = connector.search();
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        if (connector.getStatus() == SearchStatus.FOUND) {
+            List<PathNode> rest = extractPath(closest);
+            if (rest != null) {
+                path = new ArrayList<>(path);
+                path.addAll(rest.subList(1, rest.size()));
+            }
+        }
+        // a path that doesn't leave the start is useless to the executor
+        return path.size() < 2 ? null : path;
+    }
+
+    @Override
+    public SearchStatus searchFor(long sliceMillis) {
+        if (incrementalStatus.isDone()) {
+            return incrementalStatus;
+        }
+        long sliceStart = System.nanoTime();
+        startMetricsSlice();
+        try {
+            if (!initialized) {
+                initialize();
+            }
+            if (!computeShortestPath(TimeUnit.MILLISECONDS.toNanos(sliceMillis))) {
+                if (isCancelled()) {
+                    return finishIncremental(SearchStatus.CANCELLED, null);
+                }
+                if (openSet.isEmpty()) {
+                    return finishIncremental(SearchStatus.FAILED, null);
+                }
+                long now = System.nanoTime();
+                boolean overBudget = expansions >= budget.maxExpansions || openSet.size() >= budget.maxOpenSetSize ||
+                        elapsedNanos + (now - sliceStart) >= TimeUnit.MILLISECONDS.toNanos(budget.maxWallTimeMs);
+                if (!overBudget) {
+                    return incrementalStatus;
+                }
+                List<PathNode> path = findPartialPath();
+                if (path == null) {
+                    return finishIncremental(SearchStatus.FAILED, null);
+                }
+                return finishIncremental(isGoal(path.get(path.size() - 1)) ? SearchStatus.FOUND : SearchStatus.PARTIAL, path);
+            }
+            List<PathNode> path = extractPath(currentStart);
+            return finishIncremental(path == null ? SearchStatus.FAILED : SearchStatus.FOUND, path);
+        } finally {
+            elapsedNanos += System.nanoTime() - sliceStart;
+            endMetricsSlice();
+        }
+    }
+
+    private SearchStatus finishIncremental(SearchStatus status, @Nullable List<PathNode> result) {
+        incrementalStatus = status;
+        incrementalResult = result;
+        return status;
+    }
+
+    @Override
+    public void updateStart(PathNode newStart) {
+        keyModifier += distance(lastStart, newStart);
+        lastStart = newStart;
+        currentStart = newStart;
+    }
+
+    @Override
+    public void notifyBlocksChanged(Collection<BlockPos> positions) {
+        for (BlockPos pos : positions) {
+            context.worldView.invalidateSection(
+                    ChunkSectionPos.getSectionCoord(pos.getX()),
+                    ChunkSectionPos.getSectionCoord(pos.getY()),
+                    ChunkSectionPos.getSectionCoord(pos.getZ())
+            );
+        }
+        context.clearCaches();
+
+        BlockPos.Mutable cursor = new BlockPos.Mutable();
+        for (BlockPos pos : positions) {
+            for (int x = -CHANGE_RADIUS_XZ; x <= CHANGE_RADIUS_XZ; x++) {
+                for (int y = -CHANGE_RADIUS_DOWN; y <= CHANGE_RADIUS_UP; y++) {
+                    for (int z = -CHANGE_RADIUS_XZ; z <= CHANGE_RADIUS_XZ; z++) {
+                        cursor.set(pos.getX() + x, pos.getY() + y, pos.getZ() + z);
+                        int idx = nodes.indexOf(PathNode.hash(cursor.getX(), cursor.getY(), cursor.getZ()));
+                        if (idx == -1) {
+                            PathManoeuvre manoeuvre = context.findManoeuvre(currentStart, cursor);
+                            if (manoeuvre == PathManoeuvre.NULL) {
+                                continue; // not a node before or after the change
+                            }
+                            idx = getOrCreateNode(new PathNode(cursor.toImmutable(), manoeuvre));
+                        }
+                        if (!isGoalIdx(idx)) {
+                            rhs[idx] = computeRhs(nodes.getNode(idx));
+                        }
+                        updateVertex(idx);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public @Nullable List<PathNode> replan() {
+        incrementalStatus = SearchStatus.IN_PROGRESS;
+        incrementalResult = null;
+        expansions = 0;
+        elapsedNanos = 0;
+        searchFor(Long.MAX_VALUE);
+        return getResult();
+    }
+
+    @Override
+    public List<PathNode> getResult() {
+        return incrementalResult;
+    }
+
+    @Override
+    public SearchStatus getStatus() {
+        return incrementalStatus;
+    }
+
+    @Override
+    public long getExpansions() {
+        return expansions;
+    }
+
+    @Override
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public void step(PathNode current) {
+        // D* Lite expands nodes in computeShortestPath
+    }
+}
@@ -0,0 +1,337 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+Hierarchical A* (HPA*) for long distance goals, instead of searching block by block all
+the way to the goal, we first search the abstract graph of chunk clusters and their border
+portals (see ClusterGraph), then refine only the first few clusters of that route into a
+block level path with a regular AStarPathfinder.
+
+the returned path only leads through the next REFINE_CLUSTERS clusters (unless the goal is
+closer), the search is PARTIAL in that case and should be repeated once the path is walked.
+both stages honor the time slices of searchFor, the abstract search picks up where it stopped.
+ */
+public class HierarchicalPathfinder extends AStarPathfinderBase {
+    // how many cluster borders the block level path crosses at most
+    public final int REFINE_CLUSTERS = 2;
+    // maximum number of portals expanded by the abstract search
+    public final int MAX_ABSTRACT_EXPANSIONS = 50_000;
+
+    public final ClusterGraph graph;
+
+    private @Nullable AbstractSearch abstractSearch = null;
+    private @Nullable List<BlockPos> abstractPath = null;
+    private @Nullable AStarPathfinderBase refiner = null;
+    private boolean refinesToGoal = false;
+    private SearchStatus hierarchicalStatus = SearchStatus.IN_PROGRESS;
+    private @Nullable List<PathNode> hierarchicalResult = null;
+    private long abstractNanos = 0;
+
+    public HierarchicalPathfinder(PathNode start, PathFinderGoal goal, PathFinderContext context, ClusterGraph graph) {
+        super(start, goal, context);
+        this.graph = graph;
+    }
+
+    private static long clusterKeyOf(BlockPos pos) {
+        return ChunkPos.toLong(ChunkSectionPos.getSectionCoord(pos.getX()), ChunkSectionPos.getSectionCoord(pos.getZ()));
+    }
+
+    /**
+     * Searches the portal graph from the start to the goal in one go.
+     *
+     * @return the positions along the abstract route, it ends at the portal closest to the goal if the goal
+     *         can't be reached, null if cancelled
+     */
+    public @Nullable List<BlockPos> planAbstractPath() {
+        AbstractSearch search = new AbstractSearch();
+        search.searchFor(Long.MAX_VALUE);
+        return isCancelled() ? null : search.getPath();
+    }
+
+    /*
+    A* over the portals, kept as an object so it can stop when its time slice runs out and
+    resume in the next one, the clusters it touches are built (and flooded) on demand, which
+    is where most of its time goes.
+     */
+    private class AbstractSearch {
+        private final NodeTable table = new NodeTable();
+        private final IndexedNodeHeap open = new IndexedNodeHeap();
+        private final Map<Long, ClusterPortal> portals = new HashMap<>();
+        private final BlockPos goalPos = goal.getTarget();
+        private final Cluster goalCluster;
+        private final boolean sameCluster = clusterKeyOf(start.pos) == clusterKeyOf(goalPos);
+        private int bestIdx;
+        private double bestHeuristicCost = Double.POSITIVE_INFINITY;
+        private int expansions = 0;
+        private boolean done = false;
+
+        AbstractSearch() {
+            goalCluster = sameCluster ? null : graph.getClusterAt(context, goalPos);
+            int startIdx = table.getOrCreate(start.getHash());
+            table.setGScore(startIdx, 0);
+            open.push(startIdx, Math.sqrt(start.pos.getSquaredDistance(goalPos)));
+            bestIdx = startIdx;
+            if (!sameCluster) {
+                // a start standing on a portal is that portal, so its exits are followed like any other's
+                ClusterPortal startPortal = graph.getClusterAt(context, start.pos).getPortal(start.getHash());
+                if (startPortal != null) {
+                    portals.put(startPortal.key, startPortal);
+                }
+            }
+        }
+
+        /**
+         * Expands portals for at most `sliceMillis` milliseconds.
+         *
+         * @return true once the search is over (goal reached, graph exhausted, out of expansions or cancelled)
+         */
+        boolean searchFor(long sliceMillis) {
+            if (done || sameCluster) {
+                return done = true;
+            }
+            long sliceStart = System.nanoTime();
+            long sliceNanos = TimeUnit.MILLISECONDS.toNanos(sliceMillis);
+            while (!open.isEmpty() && expansions < MAX_ABSTRACT_EXPANSIONS) {
+                if (isCancelled()) {
+                    return done = true;
+                }
+                if (System.nanoTime() - sliceStart >= sliceNanos) {
+                    return false; // resume in the next slice
+                }
+                expansions++;
+                int idx = open.poll();
+                long key = table.getKey(idx);
+                if (key == goal.getHash()) {
+                    bestIdx = idx;
+                    return done = true;
+                }
+                expand(idx, key);
+            }
+            return done = true;
+        }
+
+        private void expand(int idx, long key) {
+            BlockPos pos = BlockPos.fromLong(key);
+            double heuristic = Math.sqrt(pos.getSquaredDistance(goalPos));
+            if (heuristic < bestHeuristicCost) {
+                bestHeuristicCost = heuristic;
+                bestIdx = idx;
+            }
+
+            ClusterPortal portal = portals.get(key);
+            Cluster cluster;
+            double[] costs;
+            if (portal == null) {
+                // the start node, connected to every portal of its own cluster
+                cluster = graph.getClusterAt(context, pos);
+                costs = graph.costsFrom(context, pos, cluster);
+            } else {
+                cluster = graph.getCluster(context, portal.chunkX, portal.chunkZ);
+                costs = new double[cluster.portals.size()];
+                ClusterPortal current = cluster.getPortal(key);
+                for (ClusterPortal other : cluster.portals) {
+                    costs[other.index] = current == null ? Double.POSITIVE_INFINITY : cluster.getCost(current, other);
+                }
+                // portals lead into the neighboring clusters
+                for (BlockPos exit : portal.exits) {
+                    Cluster exitCluster = graph.getClusterAt(context, exit);
+                    ClusterPortal exitPortal = exitCluster.getPortal(PathNode.hash(exit.getX(), exit.getY(), exit.getZ()));
+                    if (exitPortal != null) {
+                        relax(idx, exitPortal, Math.sqrt(pos.getSquaredDistance(exit)));
+                    }
+                }
+            }
+
+            // moving inside the cluster
+            for (ClusterPortal other : cluster.portals) {
+                double cost = costs[other.index];
+                if (other.key != key && cost != Double.POSITIVE_INFINITY) {
+                    relax(idx, other, cost);
+                }
+            }
+
+            // the goal is connected to the portals of its cluster
+            if (cluster.chunkX == goalCluster.chunkX && cluster.chunkZ == goalCluster.chunkZ) {
+                double cost = costToGoal(pos);
+                if (cost != Double.POSITIVE_INFINITY) {
+                    int goalIdx = table.getOrCreate(goal.getHash());
+                    double gScore = table.getGScore(idx) + cost;
+                    if (gScore < table.getGScore(goalIdx)) {
+                        table.setGScore(goalIdx, gScore);
+                        table.setParent(goalIdx, idx);
+                        open.push(goalIdx, gScore);
+                    }
+                }
+            }
+        }
+
+        private void relax(int fromIdx, ClusterPortal portal, double cost) {
+            int idx = table.getOrCreate(portal.key);
+            double gScore = table.getGScore(fromIdx) + cost;
+            if (gScore < table.getGScore(idx)) {
+                portals.put(portal.key, portal);
+                table.setGScore(idx, gScore);
+                table.setParent(idx, fromIdx);
+                open.push(idx, gScore + Math.sqrt(portal.pos.getSquaredDistance(goalPos)));
+            }
+        }
+
+        /**
+         * @return the positions along the route to the goal, or to the portal closest to it
+         */
+        List<BlockPos> getPath() {
+            if (sameCluster) {
+                return List.of(start.pos, goalPos);
+            }
+            List<BlockPos> path = new ArrayList<>();
+            for (int idx = bestIdx; idx != NodeTable.NO_PARENT; idx = table.getParent(idx)) {
+                path.add(BlockPos.fromLong(table.getKey(idx)));
+            }
+            Collections.reverse(path);
+            return path;
+        }
+    }
+
+    // cost of walking from a cell to the goal without leaving the goal's cluster
+    private double costToGoal(BlockPos from) {
+        AStarPathfinder pathfinder = new AStarPathfinder(new PathNode(from, PathManoeuvre.WALK), goal, context);
+        pathfinder.setBounds(graph.getFloodBounds(
+                context, ChunkSectionPos.getSectionCoord(from.getX()), ChunkSectionPos.getSectionCoord(from.getZ()),
+                Math.min(from.getY(), goal.getTarget().getY()), Math.max(from.getY(), goal.getTarget().getY())
+        ));
+        pathfinder.setBudget(graph.PORTAL_SEARCH_BUDGET);
+        List<PathNode> path = pathfinder.search();
+        if (path == null || pathfinder.isPartial()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return pathfinder.nodes.getGScore(pathfinder.nodes.indexOf(goal.getHash()));
+    }
+
+    // picks the position where the block level path should end, REFINE_CLUSTERS borders down the route
+    private BlockPos pickRefinementTarget(List<BlockPos> path) {
+        int crossings = 0;
+        long clusterKey = clusterKeyOf(path.get(0));
+        for (BlockPos pos : path) {
+            long key = clusterKeyOf(pos);
+            if (key != clusterKey) {
+                clusterKey = key;
+                if (++crossings >= REFINE_CLUSTERS) {
+                    return pos;
+                }
+            }
+        }
+        return path.get(path.size() - 1);
+    }
+
+    @Override
+    public SearchStatus searchFor(long sliceMillis) {
+        if (hierarchicalStatus.isDone()) {
+            return hierarchicalStatus;
+        }
+        if (isCancelled()) {
+            return finishHierarchical(SearchStatus.CANCELLED, null);
+        }
+
+        long remainingMillis = sliceMillis;
+        if (refiner == null) {
+            if (abstractSearch == null) {
+                abstractSearch = new AbstractSearch();
+            }
+            long startTime = System.nanoTime();
+            startMetricsSlice();
+            boolean planned = abstractSearch.searchFor(sliceMillis);
+            endMetricsSlice();
+            long spentNanos = System.nanoTime() - startTime;
+            abstractNanos += spentNanos;
+            remainingMillis -= TimeUnit.NANOSECONDS.toMillis(spentNanos);
+            if (isCancelled()) {
+                return finishHierarchical(SearchStatus.CANCELLED, null);
+            }
+            if (!planned) {
+                return hierarchicalStatus; // resume in the next slice
+            }
+            abstractPath = abstractSearch.getPath();
+            abstractSearch = null;
+            if (abstractPath.size() < 2) {
+                return finishHierarchical(SearchStatus.FAILED, null);
+            }
+            BlockPos target = pickRefinementTarget(abstractPath);
+            refinesToGoal = PathNode.hash(target.getX(), target.getY(), target.getZ()) == goal.getHash();
+            refiner = new AStarPathfinder(start, refinesToGoal ? goal : new PathFinderGoal(target), context);
+            refiner.setBudget(budget);
+        }
+
+        // the refiner gets what is left of the slice, or starts in the next one
+        if (remainingMillis <= 0) {
+            return hierarchicalStatus;
+        }
+        SearchStatus status = refiner.searchFor(remainingMillis);
+        if (!status.isDone()) {
+            return status;
+        }
+        if (status == SearchStatus.FOUND && !refinesToGoal) {
+            // we reached the end of the refined clusters, not the goal itself
+            status = SearchStatus.PARTIAL;
+        }
+        return finishHierarchical(status, refiner.getResult());
+    }
+
+    private SearchStatus finishHierarchical(SearchStatus status, @Nullable List<PathNode> result) {
+        hierarchicalStatus = status;
+        hierarchicalResult = status == SearchStatus.FOUND || status == SearchStatus.PARTIAL ? result : null;
+        return hierarchicalStatus;
+    }
+
+    public @Nullable List<BlockPos> getAbstractPath() {
+        return abstractPath;
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        if (refiner != null) {
+            refiner.cancel();
+        }
+    }
+
+    @Override
+    protected List<AStarPathfinderBase> getDelegates() {
+        return refiner == null ? List.of() : List.of(refiner);
+    }
+
+    @Override
+    public List<PathNode> getResult() {
+        return hierarchicalResult;
+    }
+
+    @Override
+    public SearchStatus getStatus() {
+        return hierarchicalStatus;
+    }
+
+    @Override
+    public long getExpansions() {
+        return refiner == null ? 0 : refiner.getExpansions();
+    }
+
+    @Override
+    public long getElapsedNanos() {
+        return abstractNanos + (refiner == null ? 0 : refiner.getElapsedNanos());
+    }
+
+    @Override
+    public void step(PathNode current) {
+        // the block level search is delegated to the refiner
+    }
+}
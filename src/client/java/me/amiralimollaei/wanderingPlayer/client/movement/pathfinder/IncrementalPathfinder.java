@@ -0,0 +1,27 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.BlockPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+
+// a pathfinder that keeps its search state after planning, so it can repair the path when the world changes
+public interface IncrementalPathfinder {
+    /**
+     * Moves the start of the search, called as the player walks along the path.
+     */
+    void updateStart(PathNode newStart);
+
+    /**
+     * Tells the pathfinder which blocks changed since the last plan.
+     */
+    void notifyBlocksChanged(Collection<BlockPos> positions);
+
+    /**
+     * Repairs the search after {@link #updateStart(PathNode)} and {@link #notifyBlocksChanged(Collection)}.
+     *
+     * @return the new path from the current start to the goal, or null if the goal can't be reached anymore
+     */
+    @Nullable List<PathNode> replan();
+}
@@ -0,0 +1,182 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import java.util.Arrays;
+
+/*
+A binary min-heap of dense node indices (see NodeTable) with their priorities stored inline,
+it keeps track of where each node sits in the heap, so membership checks are O(1) and
+changing the priority of a node that is already queued is O(log n).
+ */
+public class IndexedNodeHeap {
+    private static final int NOT_QUEUED = -1;
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // heap slot -> node index
+    private int[] heap;
+    // heap slot -> priority of the node in that slot
+    private double[] priorities;
+    // node index -> heap slot
+    private int[] positions;
+    private int size = 0;
+
+    public IndexedNodeHeap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IndexedNodeHeap(int capacity) {
+        capacity = Math.max(16, capacity);
+        heap = new int[capacity];
+        priorities = new double[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, NOT_QUEUED);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int node) {
+        return node < positions.length && positions[node] != NOT_QUEUED;
+    }
+
+    /**
+     * Adds a node to the heap, if the node is already queued its priority is updated instead.
+     */
+    public void push(int node, double priority) {
+        if (contains(node)) {
+            int slot = positions[node];
+            double oldPriority = priorities[slot];
+            priorities[slot] = priority;
+            if (priority < oldPriority) {
+                siftUp(slot);
+            } else if (priority > oldPriority) {
+                siftDown(slot);
+            }
+            return;
+        }
+
+        ensureNodeCapacity(node);
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+            priorities = Arrays.copyOf(priorities, size * 2);
+        }
+        heap[size] = node;
+        priorities[size] = priority;
+        positions[node] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * @return the node with the lowest priority, without removing it
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new IllegalStateException("heap is empty");
+        }
+        return heap[0];
+    }
+
+    public double peekPriority() {
+        if (size == 0) {
+            throw new IllegalStateException("heap is empty");
+        }
+        return priorities[0];
+    }
+
+    /**
+     * Removes and returns the node with the lowest priority.
+     */
+    public int poll() {
+        int node = peek();
+        positions[node] = NOT_QUEUED;
+        size--;
+        if (size > 0) {
+            move(size, 0);
+            siftDown(0);
+        }
+        return node;
+    }
+
+    /**
+     * Removes a node from the heap, does nothing if it's not queued.
+     */
+    public void remove(int node) {
+        if (!contains(node)) {
+            return;
+        }
+        int slot = positions[node];
+        positions[node] = NOT_QUEUED;
+        size--;
+        if (slot != size) {
+            double removedPriority = priorities[slot];
+            move(size, slot);
+            if (priorities[slot] < removedPriority) {
+                siftUp(slot);
+            } else {
+                siftDown(slot);
+            }
+        }
+    }
+
+    public void clear() {
+        for (int slot = 0; slot < size; slot++) {
+            positions[heap[slot]] = NOT_QUEUED;
+        }
+        size = 0;
+    }
+
+    private void ensureNodeCapacity(int node) {
+        if (node >= positions.length) {
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(node + 1, oldLength * 2));
+            Arrays.fill(positions, oldLength, positions.length, NOT_QUEUED);
+        }
+    }
+
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        priorities[to] = priorities[from];
+        positions[heap[to]] = to;
+    }
+
+    private void siftUp(int slot) {
+        int node = heap[slot];
+        double priority = priorities[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            move(parent, slot);
+            slot = parent;
+        }
+        heap[slot] = node;
+        priorities[slot] = priority;
+        positions[node] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int node = heap[slot];
+        double priority = priorities[slot];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && priorities[right] < priorities[child]) {
+                child = right;
+            }
+            if (priority <= priorities[child]) {
+                break;
+            }
+            move(child, slot);
+            slot = child;
+        }
+        heap[slot] = node;
+        priorities[slot] = priority;
+        positions[node] = slot;
+    }
+}
@@ -0,0 +1,187 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.BlockPos;
+import org.jetbrains.annotations.Nullable;
+
+/*
+Jump Point Search is a variant of A*, optimized for open walkable terrain (plains, deserts,
+etc.) where most paths are symmetric, instead of adding every neighbor to the open set we
+scan straight and diagonal runs over the current walking layer and only add the cells where
+the path may have to turn (jump points).
+
+the pruning rules are the ones for 8-connected grids that don't allow cutting corners, which
+matches the raycast check done for diagonal neighbors in PathFinderContext.
+
+cells where the terrain leaves the layer (steps, ledges, water) are treated as jump points and
+also get their moves off the layer from the neighbor generator, so vertical movement is never
+pruned, everywhere else only the natural and forced neighbors of the direction of travel are
+scanned.
+
+unlike the other pathfinders the heuristic is the plain euclidean distance, which is admissible,
+so paths on flat terrain are optimal.
+ */
+public class JumpPointPathfinder extends AStarPathfinderBase {
+    // a run is cut into several jump points if it's longer than this
+    public final int MAX_JUMP_DISTANCE = 64;
+
+    private final BlockPos.Mutable probe = new BlockPos.Mutable();
+    private final NeighborBuffer neighbors = new NeighborBuffer();
+
+    public JumpPointPathfinder(PathNode start, PathFinderGoal goal, PathFinderContext context) {
+        super(start, goal, context);
+    }
+
+    @Override
+    public double heuristicCost(PathNode node) {
+        return node.distanceTo(goal.getTarget());
+    }
+
+    private boolean isWalkable(int x, int y, int z) {
+        return context.canPlayerWalkAt(probe.set(x, y, z));
+    }
+
+    private boolean isGoal(int x, int y, int z) {
+        return PathNode.hash(x, y, z) == goal.getHash();
+    }
+
+    // true if the player can leave the layer from this cell (step up, drop down or swim)
+    private boolean isIrregular(int x, int y, int z) {
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                if ((dx == 0 && dz == 0) || isWalkable(x + dx, y, z + dz)) {
+                    continue;
+                }
+                if (isWalkable(x + dx, y + 1, z + dz) ||
+                        context.isUnderWater(probe.set(x + dx, y, z + dz)) ||
+                        (context.canClipInto(probe.set(x + dx, y, z + dz)) && context.canClipInto(probe.set(x + dx, y - 1, z + dz)))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scans from (x, y, z) in the direction (dx, dz) until a jump point is found.
+     *
+     * @param stopAtLimit whether to return the last cell of the run if it's longer than {@link #MAX_JUMP_DISTANCE}
+     * @return the jump point, or null if the run is blocked before reaching one
+     */
+    private @Nullable BlockPos jump(int x, int y, int z, int dx, int dz, boolean stopAtLimit) {
+        int cx = x;
+        int cz = z;
+        for (int distance = 0; distance < MAX_JUMP_DISTANCE; distance++) {
+            // moving diagonally, both orthogonal cells must be open
+            if (dx != 0 && dz != 0 && !(isWalkable(cx + dx, y, cz) && isWalkable(cx, y, cz + dz))) {
+                return null;
+            }
+            cx += dx;
+            cz += dz;
+            if (!isWalkable(cx, y, cz)) {
+                return null;
+            }
+            if (isGoal(cx, y, cz) || isIrregular(cx, y, cz)) {
+                return new BlockPos(cx, y, cz);
+            }
+
+            if (dx != 0 && dz != 0) {
+                if (jump(cx, y, cz, dx, 0, false) != null || jump(cx, y, cz, 0, dz, false) != null) {
+                    return new BlockPos(cx, y, cz);
+                }
+            } else if (dx != 0) {
+                // forced neighbors: an open cell to the side that was blocked one step back
+                if ((isWalkable(cx, y, cz - 1) && !isWalkable(cx - dx, y, cz - 1)) ||
+                        (isWalkable(cx, y, cz + 1) && !isWalkable(cx - dx, y, cz + 1))) {
+                    return new BlockPos(cx, y, cz);
+                }
+            } else {
+                if ((isWalkable(cx - 1, y, cz) && !isWalkable(cx - 1, y, cz - dz)) ||
+                        (isWalkable(cx + 1, y, cz) && !isWalkable(cx + 1, y, cz - dz))) {
+                    return new BlockPos(cx, y, cz);
+                }
+            }
+        }
+        return stopAtLimit ? new BlockPos(cx, y, cz) : null;
+    }
+
+    private void relax(PathNode current, int currentIdx, PathNode neighbor) {
+        if (!isInBounds(neighbor)) {
+            return;
+        }
+        double tentativeGScore = nodes.getGScore(currentIdx) + heuristicCost(current, neighbor);
+        int neighborIdx = nodes.indexOf(neighbor.getHash());
+        double prevGScore = neighborIdx == -1 ? NodeTable.DEFAULT_G_SCORE : nodes.getGScore(neighborIdx);
+        if (tentativeGScore < prevGScore) {
+            // Update path information, add or update the neighbor in the open set
+            pushOpen(updateNode(neighbor, currentIdx, tentativeGScore));
+        }
+    }
+
+    private void jumpAndRelax(PathNode current, int currentIdx, int dx, int dz) {
+        BlockPos pos = current.pos;
+        BlockPos jumpPoint = jump(pos.getX(), pos.getY(), pos.getZ(), dx, dz, true);
+        if (jumpPoint != null) {
+            relax(current, currentIdx, new PathNode(jumpPoint, PathManoeuvre.WALK));
+        }
+    }
+
+    public void step(PathNode current) {
+        int currentIdx = nodes.indexOf(current.getHash());
+        int parentIdx = nodes.getParent(currentIdx);
+        PathNode parent = parentIdx == NodeTable.NO_PARENT ? null : nodes.getNode(parentIdx);
+        BlockPos pos = current.pos;
+        int x = pos.getX(), y = pos.getY(), z = pos.getZ();
+        boolean onLayer = current.getManoeuvre() == PathManoeuvre.WALK;
+
+        // moves off the layer are never pruned, they only exist where the terrain leaves it
+        if (!onLayer || isIrregular(x, y, z)) {
+            int count = context.collectNeighbors(current, neighbors);
+            for (int i = 0; i < count; i++) {
+                if (!onLayer || neighbors.getY(i) != y || neighbors.getManoeuvre(i) != PathManoeuvre.WALK) {
+                    relax(current, currentIdx, neighbors.toNode(i));
+                }
+            }
+        }
+        if (!onLayer) {
+            return;
+        }
+
+        // no direction to prune with, we just entered the layer: jump every way along it
+        if (parent == null || parent.pos.getY() != y || parent.getManoeuvre() != PathManoeuvre.WALK) {
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (dx != 0 || dz != 0) {
+                        jumpAndRelax(current, currentIdx, dx, dz);
+                    }
+                }
+            }
+            return;
+        }
+
+        int dx = Integer.signum(x - parent.pos.getX());
+        int dz = Integer.signum(z - parent.pos.getZ());
+        if (dx != 0 && dz != 0) {
+            // without corner cutting a diagonal move has no forced neighbors
+            jumpAndRelax(current, currentIdx, dx, 0);
+            jumpAndRelax(current, currentIdx, 0, dz);
+            jumpAndRelax(current, currentIdx, dx, dz);
+        } else if (dx != 0) {
+            jumpAndRelax(current, currentIdx, dx, 0);
+            for (int side = -1; side <= 1; side += 2) {
+                // forced: the side is open here but was blocked one step back
+                if (isWalkable(x, y, z + side) && !isWalkable(x - dx, y, z + side)) {
+                    jumpAndRelax(current, currentIdx, 0, side);
+                    jumpAndRelax(current, currentIdx, dx, side);
+                }
+            }
+        } else if (dz != 0) {
+            jumpAndRelax(current, currentIdx, 0, dz);
+            for (int side = -1; side <= 1; side += 2) {
+                if (isWalkable(x + side, y, z) && !isWalkable(x + side, y, z - dz)) {
+                    jumpAndRelax(current, currentIdx, side, 0);
+                    jumpAndRelax(current, currentIdx, side, dz);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/*
+Lazy Theta* (Nash, Koenig & Tovey) is an any-angle variant of A*, a neighbor is attached to the
+parent of the expanded node instead of the expanded node itself, as if the player could move
+straight to it, so the search produces taut paths with few nodes and there's nothing left for
+simplifyPath to do.
+
+the straight move is only checked once the neighbor is expanded, if it turns out to be blocked
+the neighbor falls back to the best expanded node that reaches it with a regular move, that way
+the line of sight is checked once per expanded node instead of once per neighbor.
+ */
+public class LazyThetaStarPathfinder extends AStarPathfinderBase {
+    // reused for every expansion, so expanding a node doesn't allocate anything per neighbor
+    private final NeighborBuffer neighbors = new NeighborBuffer();
+    // nodes that were expanded, by node index
+    private final BitSet closed = new BitSet();
+    // the best way of reaching each node with a regular move from an expanded node, by node index
+    private double[] latticeGScores = new double[1024];
+    private int[] latticeParents = new int[1024];
+
+    public LazyThetaStarPathfinder(PathNode start, PathFinderGoal goal, PathFinderContext context) {
+        super(start, goal, context);
+        Arrays.fill(latticeGScores, Double.POSITIVE_INFINITY);
+    }
+
+    private static double distance(PathNode from, int x, int y, int z) {
+        double dx = x - from.pos.getX();
+        double dy = y - from.pos.getY();
+        double dz = z - from.pos.getZ();
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private void ensureCapacity(int idx) {
+        if (idx < latticeGScores.length) {
+            return;
+        }
+        int oldLength = latticeGScores.length;
+        latticeGScores = Arrays.copyOf(latticeGScores, Math.max(idx + 1, oldLength * 2));
+        latticeParents = Arrays.copyOf(latticeParents, latticeGScores.length);
+        Arrays.fill(latticeGScores, oldLength, latticeGScores.length, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    protected void beforeExpand(PathNode current) {
+        int currentIdx = nodes.indexOf(current.getHash());
+        closed.set(currentIdx);
+        int parentIdx = nodes.getParent(currentIdx);
+        if (parentIdx == NodeTable.NO_PARENT || (currentIdx < latticeParents.length && parentIdx == latticeParents[currentIdx])) {
+            return; // the start, or reached with a regular move
+        }
+        if (context.canMoveStraight(nodes.getNode(parentIdx), current)) {
+            return;
+        }
+        // the straight move is blocked, use the best regular move into this node instead
+        nodes.setParent(currentIdx, latticeParents[currentIdx]);
+        nodes.setGScore(currentIdx, latticeGScores[currentIdx]);
+        nodes.setFScore(currentIdx, latticeGScores[currentIdx] + heuristicCost(current));
+    }
+
+    @Override
+    public List<PathNode> reconstructPath(PathNode current) {
+        // partial results may end at a node that was never expanded, so its straight move is unchecked
+        if (!closed.get(nodes.indexOf(current.getHash()))) {
+            beforeExpand(current);
+        }
+        return super.reconstructPath(current);
+    }
+
+    @Override
+    public void step(PathNode current) {
+        int currentIdx = nodes.indexOf(current.getHash());
+        double currentGScore = nodes.getGScore(currentIdx);
+        // neighbors are attached to the parent of the current node, as long as it has one
+        int parentIdx = nodes.getParent(currentIdx);
+        int shortcutIdx = parentIdx == NodeTable.NO_PARENT ? currentIdx : parentIdx;
+        PathNode shortcut = nodes.getNode(shortcutIdx);
+        double shortcutGScore = nodes.getGScore(shortcutIdx);
+
+        int count = context.collectNeighbors(current, neighbors);
+        for (int i = 0; i < count; i++) {
+            int x = neighbors.getX(i), y = neighbors.getY(i), z = neighbors.getZ(i);
+            if (!isInBounds(x, y, z)) {
+                continue;
+            }
+            int neighborIdx = nodes.indexOf(neighbors.getHash(i));
+            if (neighborIdx != -1 && closed.get(neighborIdx)) {
+                continue;
+            }
+
+            double tentativeGScore = shortcutGScore + distance(shortcut, x, y, z);
+            if (neighborIdx == -1 || tentativeGScore < nodes.getGScore(neighborIdx)) {
+                neighborIdx = updateNode(neighbors.toNode(i), shortcutIdx, tentativeGScore);
+                pushOpen(neighborIdx);
+            }
+
+            // remember the regular move, in case the straight one turns out to be blocked
+            ensureCapacity(neighborIdx);
+            double latticeGScore = currentGScore + neighbors.getCost(i);
+            if (latticeGScore < latticeGScores[neighborIdx]) {
+                latticeGScores[neighborIdx] = latticeGScore;
+                latticeParents[neighborIdx] = currentIdx;
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import me.amiralimollaei.wanderingPlayer.client.WanderingPlayerClient;
+import net.minecraft.util.math.ChunkSectionPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+Passability of chunk sections saved to disk, so areas we've been to before don't have to be
+derived again in the next session.
+
+the file is a header followed by fixed size records (section position, fingerprint of the
+blocks, passability bitsets), it's read through a read-only memory mapping and written through
+the channel, a section that is saved again overwrites its record in place. the fingerprint is
+the version stamp of a record, a record whose blocks changed since it was written is ignored.
+ */
+public class NavCacheFile implements Closeable {
+    public static final int MAGIC = 0x57504E43; // "WPNC"
+    // 2: fingerprints hash the packed block states of a section and of the sections below and above it
+    public static final int FORMAT_VERSION = 2;
+    public static final int HEADER_BYTES = 32;
+    public static final int RECORD_BYTES = 16 + SectionPassability.SERIALIZED_LONGS * Long.BYTES;
+    // keeps the file below ~85MB, sections beyond that are only kept in memory
+    public static final int MAX_RECORDS = 32_768;
+
+    private final Path path;
+    private final FileChannel channel;
+    // offset of the record of each section, by packed section position
+    private final Map<Long, Long> offsets = new HashMap<>();
+    private @Nullable MappedByteBuffer mapped = null;
+    private long mappedSize = 0;
+    private long size;
+    private boolean closed = false;
+
+    private NavCacheFile(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens (or creates) a cache file, a file written by another game version, with other blocks or in
+     * another format is emptied.
+     *
+     * @param registryHash identifies the game version and block states the raw state ids belong to
+     */
+    public static NavCacheFile open(Path path, long registryHash) throws IOException {
+        Files.createDirectories(path.getParent());
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        NavCacheFile file = new NavCacheFile(path, channel);
+        try {
+            file.load(registryHash);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return file;
+    }
+
+    private void load(long registryHash) throws IOException {
+        size = channel.size();
+        boolean valid = size >= HEADER_BYTES && (size - HEADER_BYTES) % RECORD_BYTES == 0 &&
+                (size - HEADER_BYTES) / RECORD_BYTES <= MAX_RECORDS;
+        if (valid) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            valid = header.getInt() == MAGIC && header.getInt() == FORMAT_VERSION && header.getLong() == registryHash;
+        }
+        if (!valid) {
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(registryHash);
+            header.clear();
+            channel.write(header, 0);
+            size = HEADER_BYTES;
+            return;
+        }
+
+        // only the keys are read, the bitsets stay on disk until a section is asked for
+        MappedByteBuffer buffer = remap();
+        for (long offset = HEADER_BYTES; offset < size; offset += RECORD_BYTES) {
+            offsets.put(buffer.getLong((int) offset), offset);
+        }
+    }
+
+    private MappedByteBuffer remap() throws IOException {
+        mappedSize = channel.size();
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, mappedSize);
+        return mapped;
+    }
+
+    /**
+     * @return true if a record of the section was saved, its fingerprint may not match the blocks anymore
+     */
+    public synchronized boolean contains(int sectionX, int sectionY, int sectionZ) {
+        return !closed && offsets.containsKey(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+    }
+
+    /**
+     * @param fingerprint the fingerprint of the blocks of the section now, see {@link SectionPassability#fingerprint}
+     * @param version     the version stamp the loaded passability gets
+     * @return the saved passability, or null if there's none or the blocks changed since it was saved
+     */
+    public synchronized @Nullable SectionPassability load(int sectionX, int sectionY, int sectionZ, long fingerprint, long version) {
+        if (closed) {
+            return null;
+        }
+        Long offset = offsets.get(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+        if (offset == null) {
+            return null;
+        }
+        try {
+            MappedByteBuffer buffer = mapped == null || offset + RECORD_BYTES > mappedSize ? remap() : mapped;
+            if (buffer.getLong((int) offset + 8) != fingerprint) {
+                return null;
+            }
+            return SectionPassability.readFrom(buffer.slice((int) offset + 16, RECORD_BYTES - 16).asLongBuffer(), version);
+        } catch (IOException e) {
+            WanderingPlayerClient.getLogger().debug("failed to read {}", path, e);
+            return null;
+        }
+    }
+
+    public synchronized void save(int sectionX, int sectionY, int sectionZ, long fingerprint, SectionPassability section) {
+        long key = ChunkSectionPos.asLong(sectionX, sectionY, sectionZ);
+        Long offset = offsets.get(key);
+        if (closed || (offset == null && offsets.size() >= MAX_RECORDS)) {
+            return;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        record.putLong(key).putLong(fingerprint);
+        section.writeTo(record.asLongBuffer());
+        record.clear();
+        try {
+            long position = offset == null ? size : offset;
+            channel.write(record, position);
+            if (offset == null) {
+                offsets.put(key, position);
+                size += RECORD_BYTES;
+            }
+        } catch (IOException e) {
+            WanderingPlayerClient.getLogger().debug("failed to write {}", path, e);
+        }
+    }
+
+    public synchronized int size() {
+        return offsets.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        mapped = null;
+        offsets.clear();
+        channel.close();
+    }
+}
@@ -0,0 +1,186 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+The navigation mesh of the loaded world: walkable regions per chunk section (see SectionNavMesh),
+kept up to date by the NavMeshBuilder, a route through a few hundred regions can be searched
+instead of tens of thousands of blocks.
+
+edges between regions are not stored, they're derived from the regions and passability of the
+sections on both sides when they're asked for, so a rebuilt section never leaves stale edges in
+its neighbors.
+ */
+public class NavMesh {
+    /**
+     * A move from a cell of one region to a cell of another one, `entry` is where the player stands
+     * after stepping up, walking or dropping into the other region.
+     */
+    public record Edge(NavRegion region, BlockPos exit, BlockPos entry) {}
+
+    // horizontal directions of a region's sides
+    private static final int[] SIDE_DX = {1, -1, 0, 0};
+    private static final int[] SIDE_DZ = {0, 0, 1, -1};
+
+    private final ConcurrentHashMap<Long, SectionNavMesh> sections = new ConcurrentHashMap<>();
+
+    public @Nullable SectionNavMesh getSection(int sectionX, int sectionY, int sectionZ) {
+        return sections.get(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+    }
+
+    public void putSection(SectionNavMesh section) {
+        sections.put(ChunkSectionPos.asLong(section.sectionX, section.sectionY, section.sectionZ), section);
+    }
+
+    public void removeSection(int sectionX, int sectionY, int sectionZ) {
+        sections.remove(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+    }
+
+    public void clear() {
+        sections.clear();
+    }
+
+    public int getSectionCount() {
+        return sections.size();
+    }
+
+    public int getRegionCount() {
+        int count = 0;
+        for (SectionNavMesh section : sections.values()) {
+            count += section.regions.size();
+        }
+        return count;
+    }
+
+    public @Nullable NavRegion getRegionAt(int x, int y, int z) {
+        SectionNavMesh section = getSection(
+                ChunkSectionPos.getSectionCoord(x), ChunkSectionPos.getSectionCoord(y), ChunkSectionPos.getSectionCoord(z)
+        );
+        return section == null ? null : section.getRegionAt(x, y, z);
+    }
+
+    public @Nullable NavRegion getRegionAt(BlockPos pos) {
+        return getRegionAt(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    // blocks of sections that weren't built yet count as solid
+    private boolean canClipInto(int x, int y, int z) {
+        SectionNavMesh section = getSection(
+                ChunkSectionPos.getSectionCoord(x), ChunkSectionPos.getSectionCoord(y), ChunkSectionPos.getSectionCoord(z)
+        );
+        return section != null && section.passability.canClipInto(x, y, z);
+    }
+
+    /**
+     * Finds the regions the player can move to from a region in a single move across one of its sides:
+     * one block up (with room for the head), on the same level, or dropping at most
+     * {@link PathFinderContext#MAX_DROP} blocks.
+     *
+     * @return one edge per neighboring region
+     */
+    public List<Edge> getEdges(NavRegion region) {
+        Map<Long, Edge> edges = new LinkedHashMap<>();
+        int y = region.y;
+        for (int side = 0; side < 4; side++) {
+            int dx = SIDE_DX[side], dz = SIDE_DZ[side];
+            // the cells along the inside of this side, each of them is checked against the cell just outside of it
+            int fromX = dx > 0 ? region.maxX : region.minX, toX = dx < 0 ? region.minX : region.maxX;
+            int fromZ = dz > 0 ? region.maxZ : region.minZ, toZ = dz < 0 ? region.minZ : region.maxZ;
+            for (int x = fromX; x <= toX; x++) {
+                for (int z = fromZ; z <= toZ; z++) {
+                    int outX = x + dx, outZ = z + dz;
+                    NavRegion target = findMoveTarget(x, y, z, outX, outZ);
+                    if (target != null && target != region) {
+                        edges.putIfAbsent(target.getKey(), new Edge(target, new BlockPos(x, y, z), new BlockPos(outX, target.y, outZ)));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(edges.values());
+    }
+
+    // the region the player ends up in when moving from (x, y, z) to the column next to it
+    private @Nullable NavRegion findMoveTarget(int x, int y, int z, int outX, int outZ) {
+        NavRegion up = getRegionAt(outX, y + 1, outZ);
+        if (up != null) {
+            return canClipInto(x, y + 2, z) ? up : null;
+        }
+        NavRegion level = getRegionAt(outX, y, outZ);
+        if (level != null) {
+            return level;
+        }
+        if (!canClipInto(outX, y, outZ) || !canClipInto(outX, y + 1, outZ)) {
+            return null;
+        }
+        // nothing to stand on, the player lands on the first standable cell down the column
+        for (int landY = y - 1; landY >= y - PathFinderContext.MAX_DROP; landY--) {
+            NavRegion landing = getRegionAt(outX, landY, outZ);
+            if (landing != null) {
+                return landing;
+            }
+            if (!canClipInto(outX, landY, outZ)) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Searches the regions (A*, from region center to region center) for a route from the region
+     * the start is in to the one the goal is in.
+     *
+     * @param maxExpansions the search gives up after expanding this many regions
+     * @return the regions along the route, or null if either end isn't on the mesh or there's no route
+     */
+    public @Nullable List<NavRegion> findCorridor(BlockPos start, BlockPos goal, int maxExpansions) {
+        NavRegion startRegion = getRegionAt(start);
+        NavRegion goalRegion = getRegionAt(goal);
+        if (startRegion == null || goalRegion == null) {
+            return null;
+        }
+
+        NodeTable table = new NodeTable();
+        IndexedNodeHeap open = new IndexedNodeHeap();
+        Map<Long, NavRegion> regions = new HashMap<>();
+        int startIdx = table.getOrCreate(startRegion.getKey());
+        regions.put(startRegion.getKey(), startRegion);
+        table.setGScore(startIdx, 0);
+        open.push(startIdx, startRegion.getCenter().distanceTo(goalRegion.getCenter()));
+
+        int expansions = 0;
+        while (!open.isEmpty() && expansions++ < maxExpansions) {
+            int idx = open.poll();
+            NavRegion region = regions.get(table.getKey(idx));
+            if (region == goalRegion) {
+                List<NavRegion> corridor = new ArrayList<>();
+                for (int i = idx; i != NodeTable.NO_PARENT; i = table.getParent(i)) {
+                    corridor.add(regions.get(table.getKey(i)));
+                }
+                Collections.reverse(corridor);
+                return corridor;
+            }
+            for (Edge edge : getEdges(region)) {
+                NavRegion next = edge.region();
+                int nextIdx = table.getOrCreate(next.getKey());
+                double gScore = table.getGScore(idx) + region.getCenter().distanceTo(next.getCenter());
+                if (gScore < table.getGScore(nextIdx)) {
+                    regions.put(next.getKey(), next);
+                    table.setGScore(nextIdx, gScore);
+                    table.setParent(nextIdx, idx);
+                    open.push(nextIdx, gScore + next.getCenter().distanceTo(goalRegion.getCenter()));
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,209 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import me.amiralimollaei.wanderingPlayer.client.WanderingPlayerClient;
+import me.amiralimollaei.wanderingPlayer.client.movement.PathExecutor;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.WorldChunk;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Keeps the NavMesh in sync with the loaded chunks near the player and the path being followed:
+every section of a chunk is queued when the chunk loads, only the sections the WorldChangeTracker
+reports as changed are queued again after that, and the sections of a chunk are dropped when it
+unloads. queued chunks further away wait until the player or a path comes close to them.
+
+sections are copied on the client thread at the end of the tick (a few chunks per tick), the
+passability and regions are derived on a pool of worker threads, a section is only published if
+it didn't change again while it was being built (a newer rebuild is queued in that case).
+ */
+public class NavMeshBuilder implements WorldChangeTracker.Listener {
+    public final int WORKER_THREADS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2));
+    // chunks copied per client tick, copying is cheap but a whole render distance loads at once
+    public final int MAX_CHUNKS_PER_TICK = 8;
+    // chunks this far from the player are built, enough for the goals of the short range planners
+    public final int BUILD_RADIUS_CHUNKS = 6;
+    // chunks this far from a node of the path being followed are built too
+    public final int PATH_RADIUS_CHUNKS = 1;
+
+    private final MinecraftClient client;
+    private final WorldChangeTracker tracker;
+    private final PassabilityCache passabilityCache;
+    private final NavMesh mesh;
+    private final ExecutorService executor;
+    // bumped when the client joins or leaves a world, builds started before that are thrown away
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // only used on the client thread
+    private final Set<Long> loadedChunks = new HashSet<>();
+    // sections waiting to be rebuilt, by chunk, in the order they were reported
+    private final Map<Long, Set<Integer>> dirtySections = new LinkedHashMap<>();
+    // the chunks around the path being followed, recomputed when the path changes
+    private @Nullable CompactPath focusedPath = null;
+    private final Set<Long> pathChunks = new HashSet<>();
+
+    public NavMeshBuilder(MinecraftClient client, WorldChangeTracker tracker, PassabilityCache passabilityCache, NavMesh mesh) {
+        this.client = client;
+        this.tracker = tracker;
+        this.passabilityCache = passabilityCache;
+        this.mesh = mesh;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "wandering-player-navmesh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+        this.executor = Executors.newFixedThreadPool(WORKER_THREADS, threadFactory);
+        tracker.addListener(this);
+    }
+
+    public void register() {
+        ClientChunkEvents.CHUNK_LOAD.register(this::onChunkLoaded);
+        ClientChunkEvents.CHUNK_UNLOAD.register(this::onChunkUnloaded);
+        ClientTickEvents.END_CLIENT_TICK.register(this::flush);
+    }
+
+    private void onChunkLoaded(ClientWorld world, WorldChunk chunk) {
+        ChunkPos pos = chunk.getPos();
+        loadedChunks.add(pos.toLong());
+        Set<Integer> sections = dirtySections.computeIfAbsent(pos.toLong(), k -> new TreeSet<>());
+        for (int sectionY = world.getBottomSectionCoord(); sectionY < world.getTopSectionCoord(); sectionY++) {
+            sections.add(sectionY);
+        }
+    }
+
+    private void onChunkUnloaded(ClientWorld world, WorldChunk chunk) {
+        ChunkPos pos = chunk.getPos();
+        loadedChunks.remove(pos.toLong());
+        dirtySections.remove(pos.toLong());
+        for (int sectionY = world.getBottomSectionCoord(); sectionY < world.getTopSectionCoord(); sectionY++) {
+            mesh.removeSection(pos.x, sectionY, pos.z);
+        }
+    }
+
+    @Override
+    public void onSectionChanged(int sectionX, int sectionY, int sectionZ) {
+        long chunkKey = ChunkPos.toLong(sectionX, sectionZ);
+        // chunk (un)loads are handled by the chunk events
+        if (loadedChunks.contains(chunkKey)) {
+            dirtySections.computeIfAbsent(chunkKey, k -> new TreeSet<>()).add(sectionY);
+        }
+    }
+
+    @Override
+    public void onReset() {
+        generation.incrementAndGet();
+        loadedChunks.clear();
+        dirtySections.clear();
+        mesh.clear();
+    }
+
+    /**
+     * @return how many chunks have sections waiting to be rebuilt
+     */
+    public int getPendingChunks() {
+        return dirtySections.size();
+    }
+
+    private void flush(MinecraftClient client) {
+        ClientWorld world = client.world;
+        ClientPlayerEntity player = client.player;
+        if (world == null || player == null || dirtySections.isEmpty()) {
+            return;
+        }
+        updatePathChunks();
+        ChunkPos playerChunk = player.getChunkPos();
+        Iterator<Map.Entry<Long, Set<Integer>>> iterator = dirtySections.entrySet().iterator();
+        int started = 0;
+        while (started < MAX_CHUNKS_PER_TICK && iterator.hasNext()) {
+            Map.Entry<Long, Set<Integer>> entry = iterator.next();
+            int chunkX = ChunkPos.getPackedX(entry.getKey());
+            int chunkZ = ChunkPos.getPackedZ(entry.getKey());
+            if (Math.max(Math.abs(chunkX - playerChunk.x), Math.abs(chunkZ - playerChunk.z)) > BUILD_RADIUS_CHUNKS &&
+                    !pathChunks.contains(entry.getKey())) {
+                continue; // stays queued until the player or a path gets close
+            }
+            iterator.remove();
+            started++;
+            WorldSnapshot snapshot = new WorldSnapshot(client, world, tracker);
+            snapshot.snapshotAround(new BlockPos(chunkX << 4, 0, chunkZ << 4), 0);
+            Set<Integer> sections = entry.getValue();
+            int buildGeneration = generation.get();
+            executor.execute(() -> build(snapshot, chunkX, chunkZ, sections, buildGeneration));
+        }
+    }
+
+    // collects the chunks around the nodes of the path being followed, once per path
+    private void updatePathChunks() {
+        CompactPath path = PathExecutor.path;
+        if (path == focusedPath) {
+            return;
+        }
+        focusedPath = path;
+        pathChunks.clear();
+        if (path == null) {
+            return;
+        }
+        CompactPath.Cursor cursor = path.cursor();
+        long lastChunk = Long.MAX_VALUE;
+        while (cursor.next()) {
+            int chunkX = ChunkSectionPos.getSectionCoord(cursor.getX());
+            int chunkZ = ChunkSectionPos.getSectionCoord(cursor.getZ());
+            long chunk = ChunkPos.toLong(chunkX, chunkZ);
+            if (chunk == lastChunk) {
+                continue;
+            }
+            lastChunk = chunk;
+            for (int dx = -PATH_RADIUS_CHUNKS; dx <= PATH_RADIUS_CHUNKS; dx++) {
+                for (int dz = -PATH_RADIUS_CHUNKS; dz <= PATH_RADIUS_CHUNKS; dz++) {
+                    pathChunks.add(ChunkPos.toLong(chunkX + dx, chunkZ + dz));
+                }
+            }
+        }
+    }
+
+    // runs on a worker thread, the snapshot holds a copy of the whole chunk column
+    private void build(WorldSnapshot snapshot, int chunkX, int chunkZ, Set<Integer> sections, int buildGeneration) {
+        try {
+            for (int sectionY : sections) {
+                if (generation.get() != buildGeneration) {
+                    return;
+                }
+                SectionPassability passability = passabilityCache.getSection(snapshot, chunkX, sectionY, chunkZ);
+                if (passability == null) {
+                    mesh.removeSection(chunkX, sectionY, chunkZ);
+                    continue;
+                }
+                SectionNavMesh section = SectionNavMesh.build(passability, chunkX, sectionY, chunkZ);
+                if (section.version == tracker.getVersion(chunkX, sectionY, chunkZ)) {
+                    mesh.putSection(section);
+                }
+            }
+        } catch (RuntimeException e) {
+            WanderingPlayerClient.getLogger().warn("failed to build the navigation mesh of chunk [{}, {}]", chunkX, chunkZ, e);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,75 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+
+/*
+A walkable surface of the navigation mesh, a rectangle of cells the player can stand on, all
+at the same height and inside the same chunk section, so the player can walk in a straight
+line between any two cells of it.
+ */
+public class NavRegion {
+    public final int sectionX;
+    public final int sectionY;
+    public final int sectionZ;
+    // index of the region among the regions of its section
+    public final int index;
+    // the cells the player stands in (the ground is one block below), inclusive world coordinates
+    public final int y;
+    public final int minX;
+    public final int minZ;
+    public final int maxX;
+    public final int maxZ;
+
+    public NavRegion(int sectionX, int sectionY, int sectionZ, int index, int y, int minX, int minZ, int maxX, int maxZ) {
+        this.sectionX = sectionX;
+        this.sectionY = sectionY;
+        this.sectionZ = sectionZ;
+        this.index = index;
+        this.y = y;
+        this.minX = minX;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * @return a key that identifies the region as long as its section isn't rebuilt
+     */
+    public long getKey() {
+        // sections have at most 16 * 16 * 16 single cell regions
+        return (long) index << 52 | (sectionY & 0xFFL) << 44 | (sectionZ & 0x3FFFFFL) << 22 | (sectionX & 0x3FFFFFL);
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return y == this.y && x >= minX && x <= maxX && z >= minZ && z <= maxZ;
+    }
+
+    public boolean contains(BlockPos pos) {
+        return contains(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    public int getArea() {
+        return (maxX - minX + 1) * (maxZ - minZ + 1);
+    }
+
+    public Vec3d getCenter() {
+        return new Vec3d((minX + maxX + 1) / 2.0, y, (minZ + maxZ + 1) / 2.0);
+    }
+
+    /**
+     * @return the cell of the region closest to the given position
+     */
+    public BlockPos getClosestCell(BlockPos pos) {
+        return new BlockPos(
+                Math.max(minX, Math.min(maxX, pos.getX())),
+                y,
+                Math.max(minZ, Math.min(maxZ, pos.getZ()))
+        );
+    }
+
+    @Override
+    public String toString() {
+        return "NavRegion[y=" + y + ", x=" + minX + ".." + maxX + ", z=" + minZ + ".." + maxZ + "]";
+    }
+}
@@ -0,0 +1,78 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+/*
+A reusable list of neighbors, filled by PathFinderContext#collectNeighbors, the neighbors
+are kept in primitive arrays so expanding a node doesn't allocate anything per neighbor,
+a PathNode is only created for the neighbors that actually get a better score.
+ */
+public class NeighborBuffer {
+    // a node has at most one neighbor per horizontal direction, plus straight up and down
+    public static final int CAPACITY = 16;
+
+    private final int[] xs = new int[CAPACITY];
+    private final int[] ys = new int[CAPACITY];
+    private final int[] zs = new int[CAPACITY];
+    private final PathManoeuvre[] manoeuvres = new PathManoeuvre[CAPACITY];
+    private final double[] costs = new double[CAPACITY];
+    private int size = 0;
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(int x, int y, int z, PathManoeuvre manoeuvre, double cost) {
+        xs[size] = x;
+        ys[size] = y;
+        zs[size] = z;
+        manoeuvres[size] = manoeuvre;
+        costs[size] = cost;
+        size++;
+    }
+
+    public int getX(int i) {
+        return xs[i];
+    }
+
+    public int getY(int i) {
+        return ys[i];
+    }
+
+    public int getZ(int i) {
+        return zs[i];
+    }
+
+    public PathManoeuvre getManoeuvre(int i) {
+        return manoeuvres[i];
+    }
+
+    /**
+     * @return the cost of moving from the expanded node to the neighbor
+     */
+    public double getCost(int i) {
+        return costs[i];
+    }
+
+    public long getHash(int i) {
+        return PathNode.hash(xs[i], ys[i], zs[i]);
+    }
+
+    public boolean contains(long hash) {
+        for (int i = 0; i < size; i++) {
+            if (getHash(i) == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a new node for the neighbor at the given index
+     */
+    public PathNode toNode(int i) {
+        return new PathNode(xs[i], ys[i], zs[i], manoeuvres[i]);
+    }
+}
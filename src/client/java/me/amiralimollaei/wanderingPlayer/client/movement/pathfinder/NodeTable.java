@@ -0,0 +1,174 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import java.util.Arrays;
+
+/*
+An open-addressing hash table that maps packed block positions (see BlockPos#asLong) to
+a dense node index, the scores and the parent of each node are kept in parallel primitive
+arrays indexed by that dense index, so nothing is boxed during the search.
+
+dense indices never change once assigned (growing only rehashes the slots), so they can
+be used as stable node ids, e.g. for parent pointers.
+ */
+public class NodeTable {
+    public static final int NO_PARENT = -1;
+    public static final double DEFAULT_G_SCORE = Double.MAX_VALUE;
+    public static final double DEFAULT_F_SCORE = Double.POSITIVE_INFINITY;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // slot -> dense index + 1, 0 marks an empty slot
+    private int[] slots;
+    private int mask;
+
+    // dense arrays
+    private long[] keys;
+    private double[] gScores;
+    private double[] fScores;
+    private int[] parents;
+    private PathNode[] nodes;
+    private int size = 0;
+
+    public NodeTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public NodeTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize) - 1) << 1;
+        slots = new int[capacity * 2];
+        mask = slots.length - 1;
+        keys = new long[capacity];
+        gScores = new double[capacity];
+        fScores = new double[capacity];
+        parents = new int[capacity];
+        nodes = new PathNode[capacity];
+    }
+
+    private static int mix(long key) {
+        // murmur3 finalizer, block positions are highly regular so the bits need to be spread
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * @return the dense index of the key, or -1 if the key is not in the table
+     */
+    public int indexOf(long key) {
+        int slot = mix(key) & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (keys[entry - 1] == key) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public boolean contains(long key) {
+        return indexOf(key) != -1;
+    }
+
+    /**
+     * Returns the dense index of the key, inserting it with default scores and no parent if it's missing.
+     */
+    public int getOrCreate(long key) {
+        int slot = mix(key) & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                break;
+            }
+            if (keys[entry - 1] == key) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == keys.length) {
+            grow();
+            return getOrCreate(key);
+        }
+
+        int index = size++;
+        keys[index] = key;
+        gScores[index] = DEFAULT_G_SCORE;
+        fScores[index] = DEFAULT_F_SCORE;
+        parents[index] = NO_PARENT;
+        nodes[index] = null;
+        slots[slot] = index + 1;
+        return index;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        gScores = Arrays.copyOf(gScores, capacity);
+        fScores = Arrays.copyOf(fScores, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        nodes = Arrays.copyOf(nodes, capacity);
+
+        // keep the load factor of the slots at or below 0.5
+        slots = new int[capacity * 2];
+        mask = slots.length - 1;
+        for (int index = 0; index < size; index++) {
+            int slot = mix(keys[index]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = index + 1;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+        Arrays.fill(nodes, 0, size, null);
+        size = 0;
+    }
+
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    public double getGScore(int index) {
+        return gScores[index];
+    }
+
+    public void setGScore(int index, double value) {
+        gScores[index] = value;
+    }
+
+    public double getFScore(int index) {
+        return fScores[index];
+    }
+
+    public void setFScore(int index, double value) {
+        fScores[index] = value;
+    }
+
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    public void setParent(int index, int parent) {
+        parents[index] = parent;
+    }
+
+    public PathNode getNode(int index) {
+        return nodes[index];
+    }
+
+    public void setNode(int index, PathNode node) {
+        nodes[index] = node;
+    }
+}
@@ -0,0 +1,84 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.ChunkSectionPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Lazily built passability bitsets of chunk sections, shared by all searches, entries are
+dropped when the WorldChangeTracker reports a change to their section.
+
+an entry is only stored if the section didn't change while it was being built, so a
+search running on an old snapshot never poisons the cache.
+
+when a persistent store is set, missing sections are looked up in it before they're derived
+from the blocks, and derived sections are saved to it.
+ */
+public class PassabilityCache implements WorldChangeTracker.Listener {
+    private final WorldChangeTracker tracker;
+    private final ConcurrentHashMap<Long, SectionPassability> sections = new ConcurrentHashMap<>();
+    private volatile @Nullable NavCacheFile persistentStore = null;
+
+    public PassabilityCache(WorldChangeTracker tracker) {
+        this.tracker = tracker;
+        tracker.addListener(this);
+    }
+
+    /**
+     * @return the passability of a section, or null if the section is not loaded in the view
+     */
+    public @Nullable SectionPassability getSection(WorldView view, int sectionX, int sectionY, int sectionZ) {
+        long key = ChunkSectionPos.asLong(sectionX, sectionY, sectionZ);
+        SectionPassability section = sections.get(key);
+        if (section != null) {
+            return section;
+        }
+
+        long version = view.getSectionVersion(sectionX, sectionY, sectionZ);
+        if (version == WorldView.UNLOADED_SECTION) {
+            return null;
+        }
+        NavCacheFile store = persistentStore;
+        // the fingerprint is only worth computing if there is a saved record to check it against
+        if (store != null && store.contains(sectionX, sectionY, sectionZ)) {
+            long fingerprint = SectionPassability.fingerprint(view, sectionX, sectionY, sectionZ);
+            section = store.load(sectionX, sectionY, sectionZ, fingerprint, version);
+        }
+        boolean loaded = section != null;
+        if (section == null) {
+            section = SectionPassability.build(view, sectionX, sectionY, sectionZ, version);
+        }
+        // the section (or the one below/above it) may have changed since the view was copied
+        if (version == tracker.getVersion(sectionX, sectionY, sectionZ)) {
+            sections.put(key, section);
+            if (version != tracker.getVersion(sectionX, sectionY, sectionZ)) {
+                sections.remove(key, section);
+            } else if (store != null && !loaded && section.hasSolid()) {
+                store.save(sectionX, sectionY, sectionZ, SectionPassability.fingerprint(view, sectionX, sectionY, sectionZ), section);
+            }
+        }
+        return section;
+    }
+
+    /**
+     * Sets the file sections are loaded from and saved to, null to only keep them in memory.
+     */
+    public void setPersistentStore(@Nullable NavCacheFile store) {
+        this.persistentStore = store;
+    }
+
+    public int size() {
+        return sections.size();
+    }
+
+    @Override
+    public void onSectionChanged(int sectionX, int sectionY, int sectionZ) {
+        sections.remove(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+    }
+
+    @Override
+    public void onReset() {
+        sections.clear();
+    }
+}
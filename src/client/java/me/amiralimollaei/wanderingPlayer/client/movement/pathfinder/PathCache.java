@@ -0,0 +1,212 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+Remembers found paths, keyed by the cell they start at and their goal, so going back to the
+same places (base, farm, portal, ...) doesn't run the full search every time.
+
+a path is dropped as soon as any chunk section it crosses changes (or its chunk is unloaded),
+including the sections between two nodes of a simplified path. the least recently used paths
+are dropped when there are too many of them or they take too much memory.
+ */
+public class PathCache implements WorldChangeTracker.Listener {
+    public final int MAX_ENTRIES = 64;
+    public final long MAX_BYTES = 4L * 1024 * 1024;
+    // a cached path can be joined from a start that is at most this far (in blocks) from one of its nodes
+    public final double REUSE_DISTANCE = 6.0;
+    // rough size of a cached node (the node, its position, its delta and the list slot)
+    private static final int BYTES_PER_NODE = 112;
+
+    private record Key(long startHash, long goalHash) {}
+
+    private record Entry(Key key, List<PathNode> path, long[] sections, long bytes) {}
+
+    /**
+     * A cached path that passes close to a start, the path can be followed from `nodeIdx` on.
+     */
+    public record Match(List<PathNode> path, int nodeIdx) {
+        public PathNode joinNode() {
+            return path.get(nodeIdx);
+        }
+
+        /**
+         * @return the nodes after the join node
+         */
+        public List<PathNode> suffix() {
+            return path.subList(nodeIdx + 1, path.size());
+        }
+    }
+
+    private final WorldChangeTracker tracker;
+    // in access order, the first entry is the least recently used one
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, Set<Key>> keysBySection = new HashMap<>();
+    private long bytes = 0;
+
+    public PathCache(WorldChangeTracker tracker) {
+        this.tracker = tracker;
+        tracker.addListener(this);
+    }
+
+    /**
+     * @return a copy of the path cached for the exact start cell and goal, or null if there is none
+     */
+    public synchronized @Nullable List<PathNode> get(PathNode start, PathFinderGoal goal) {
+        Entry entry = entries.get(new Key(start.getHash(), goal.getHash()));
+        return entry == null ? null : new ArrayList<>(entry.path());
+    }
+
+    /**
+     * Finds the cached path to the goal that passes closest to the start.
+     *
+     * @return the path and the node closest to the start, or null if no path passes close enough
+     */
+    public synchronized @Nullable Match findNearby(BlockPos start, PathFinderGoal goal) {
+        Entry bestEntry = null;
+        int bestIdx = -1;
+        double bestDistance = REUSE_DISTANCE * REUSE_DISTANCE;
+        for (Entry entry : entries.values()) {
+            if (entry.key().goalHash() != goal.getHash()) {
+                continue;
+            }
+            List<PathNode> path = entry.path();
+            // the last node is the goal itself, there's nothing to reuse after it
+            for (int i = 0; i < path.size() - 1; i++) {
+                double distance = path.get(i).pos.getSquaredDistance(start);
+                // prefer nodes further along the path when they're as close
+                if (distance <= bestDistance) {
+                    bestDistance = distance;
+                    bestEntry = entry;
+                    bestIdx = i;
+                }
+            }
+        }
+        if (bestEntry == null) {
+            return null;
+        }
+        entries.get(bestEntry.key()); // mark as recently used
+        return new Match(new ArrayList<>(bestEntry.path()), bestIdx);
+    }
+
+    /**
+     * Stores a found path, unless a section it crosses changed while it was searched for.
+     *
+     * @param path the path, from the start to the goal
+     * @param goal the goal of the search
+     * @param view the view the path was searched on, used to tell whether it's already stale
+     */
+    public synchronized void put(List<PathNode> path, PathFinderGoal goal, WorldView view) {
+        if (path.size() < 2) {
+            return;
+        }
+        Set<Long> sectionSet = new HashSet<>();
+        // the block below the feet and the one at the head decide whether a cell is still walkable
+        VoxelTraversal.CellVisitor addSections = (x, y, z) -> {
+            for (int dy = -1; dy <= 1; dy++) {
+                sectionSet.add(ChunkSectionPos.asLong(
+                        ChunkSectionPos.getSectionCoord(x),
+                        ChunkSectionPos.getSectionCoord(y + dy),
+                        ChunkSectionPos.getSectionCoord(z)
+                ));
+            }
+            return true;
+        };
+        // simplified paths skip the cells between their nodes, so every cell a segment crosses is indexed
+        for (int i = 1; i < path.size(); i++) {
+            BlockPos from = path.get(i - 1).pos;
+            BlockPos to = path.get(i).pos;
+            VoxelTraversal.traverse(
+                    from.getX() + 0.5, from.getY() + 0.5, from.getZ() + 0.5,
+                    to.getX() + 0.5, to.getY() + 0.5, to.getZ() + 0.5,
+                    addSections
+            );
+        }
+        long[] sections = new long[sectionSet.size()];
+        int i = 0;
+        for (long section : sectionSet) {
+            int sectionX = ChunkSectionPos.unpackX(section);
+            int sectionY = ChunkSectionPos.unpackY(section);
+            int sectionZ = ChunkSectionPos.unpackZ(section);
+            if (view.getSectionVersion(sectionX, sectionY, sectionZ) != tracker.getVersion(sectionX, sectionY, sectionZ)) {
+                return; // the path was found on blocks that changed since
+            }
+            sections[i++] = section;
+        }
+
+        Key key = new Key(path.get(0).getHash(), goal.getHash());
+        remove(key);
+        Entry entry = new Entry(key, List.copyOf(path), sections, (long) path.size() * BYTES_PER_NODE + sections.length * 16L);
+        entries.put(key, entry);
+        for (long section : sections) {
+            keysBySection.computeIfAbsent(section, k -> new HashSet<>()).add(key);
+        }
+        bytes += entry.bytes();
+
+        // evict the least recently used paths
+        Iterator<Entry> iterator = entries.values().iterator();
+        while ((entries.size() > MAX_ENTRIES || bytes > MAX_BYTES) && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            forget(eldest);
+        }
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            forget(entry);
+        }
+    }
+
+    // drops the indices of an entry that was removed from `entries`
+    private void forget(Entry entry) {
+        bytes -= entry.bytes();
+        for (long section : entry.sections()) {
+            Set<Key> keys = keysBySection.get(section);
+            if (keys != null) {
+                keys.remove(entry.key());
+                if (keys.isEmpty()) {
+                    keysBySection.remove(section);
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized void onSectionChanged(int sectionX, int sectionY, int sectionZ) {
+        Set<Key> keys = keysBySection.get(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+        if (keys == null) {
+            return;
+        }
+        for (Key key : List.copyOf(keys)) {
+            remove(key);
+        }
+    }
+
+    @Override
+    public synchronized void onReset() {
+        entries.clear();
+        keysBySection.clear();
+        bytes = 0;
+    }
+}
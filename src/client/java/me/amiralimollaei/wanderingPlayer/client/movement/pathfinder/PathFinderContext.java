@@ -4,19 +4,14 @@ import me.amiralimollaei.wanderingPlayer.client.WanderingPlayerClient;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.fluid.FluidState;
-import net.minecraft.util.hit.BlockHitResult;
-import net.minecraft.util.hit.HitResult;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Direction;
-import net.minecraft.util.math.Vec3d;
+import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.shape.VoxelShape;
-import net.minecraft.world.BlockView;
-import net.minecraft.world.RaycastContext;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
-import net.minecraft.world.chunk.ChunkStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -24,12 +19,93 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class PathFinderContext {
-    public ClientPlayerEntity player;
-    public World world;
+    // how many chunks around the player are copied up front when the context is created
+    public final int SNAPSHOT_CHUNK_RADIUS = 2;
+
+    // both are null for detached contexts
+    public @Nullable ClientPlayerEntity player;
+    public @Nullable World world;
+    // every block read of the pathfinder goes through this view, for the live world it's a snapshot,
+    // so it's safe to search off-thread
+    public WorldView worldView;
+    // passability bitsets shared between searches, may be null to always derive passability from block states
+    public @Nullable PassabilityCache passabilityCache;
+
+    // the player can drop at most this many blocks in a single move
+    public static final int MAX_DROP = 5;
+    // the longest run of nodes simplifyPath replaces with a single straight segment
+    public static final int MAX_SIMPLIFY_SEGMENT = 32;
+    // horizontal moves, the neighbor generator tries each of them once per expanded node
+    private static final int[] MOVE_DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] MOVE_DZ = {0, 0, 1, -1, 1, -1, 1, -1};
+    // MOVE_COSTS[move][dy + MAX_DROP] is the length of a horizontal move combined with a height change of dy
+    private static final double[][] MOVE_COSTS = new double[MOVE_DX.length][MAX_DROP + 2];
+
+    static {
+        for (int i = 0; i < MOVE_DX.length; i++) {
+            for (int dy = -MAX_DROP; dy <= 1; dy++) {
+                MOVE_COSTS[i][dy + MAX_DROP] = Math.sqrt(MOVE_DX[i] * MOVE_DX[i] + dy * dy + MOVE_DZ[i] * MOVE_DZ[i]);
+            }
+        }
+    }
+
+    // used by the probes that take plain coordinates, so they don't allocate a BlockPos
+    private final BlockPos.Mutable cursor = new BlockPos.Mutable();
+    // reused by the methods that return neighbors as lists
+    private final NeighborBuffer listBuffer = new NeighborBuffer();
+    private final NeighborBuffer predecessorBuffer = new NeighborBuffer();
+
+    // line of sight tests, created once so tracing a line doesn't allocate
+    private final VoxelTraversal.CellVisitor clearVisitor = this::canClipInto;
+    private final VoxelTraversal.CellVisitor solidVisitor = (x, y, z) -> !canClipInto(x, y, z);
+    private final VoxelTraversal.CellVisitor corridorVisitor = (x, y, z) ->
+            canClipInto(x, y, z) && canClipInto(x, y + 1, z) && !canClipInto(x, y - 1, z);
+
+    // the last section looked up in the passability cache, most probes hit the same section
+    private long lastSectionKey = Long.MAX_VALUE;
+    private @Nullable SectionPassability lastSection = null;
+
+    // counted for the search metrics, not synchronized, so they're approximate when searches share a context
+    private long blockLookups = 0;
+    private long raycasts = 0;
 
     public PathFinderContext(ClientPlayerEntity player) {
         this.player = player;
         this.world = player.getWorld();
+        this.worldView = new WorldSnapshot(MinecraftClient.getInstance(), world, WanderingPlayerClient.worldChangeTracker);
+        this.worldView.prefetchAround(player.getBlockPos(), SNAPSHOT_CHUNK_RADIUS);
+        this.passabilityCache = WanderingPlayerClient.passabilityCache;
+    }
+
+    /**
+     * Creates a context that isn't bound to a player, e.g. to search a {@link VoxelGridWorldView}.
+     *
+     * @param worldView        the blocks to search through
+     * @param passabilityCache the passability cache to use, or null to derive passability from block states
+     */
+    public PathFinderContext(WorldView worldView, @Nullable PassabilityCache passabilityCache) {
+        this.player = null;
+        this.world = worldView instanceof WorldSnapshot snapshot ? snapshot.getWorld() : null;
+        this.worldView = worldView;
+        this.passabilityCache = passabilityCache;
+    }
+
+    /**
+     * Creates a context that reads the same world view and passability cache as this one, for a search
+     * that runs at the same time on another thread (a context must only be used by one search at a time).
+     */
+    public PathFinderContext fork() {
+        PathFinderContext fork = new PathFinderContext(worldView, passabilityCache);
+        fork.player = player;
+        fork.world = world;
+        return fork;
+    }
+
+    /**
+     * Copies the chunks around a position (usually the goal), must be called on the client thread.
+     */
+    public void snapshotAround(BlockPos pos) {
+        worldView.prefetchAround(pos, SNAPSHOT_CHUNK_RADIUS);
     }
 
     public Chunk getPlayerChunk() {
@@ -37,11 +113,11 @@ public class PathFinderContext {
     }
 
     public int getWorldMaxHeight() {
-        return world.getTopY();
+        return worldView.getTopY();
     }
 
     public int getWorldMinHeight() {
-        return world.getBottomY();
+        return worldView.getBottomY();
     }
 
     public BlockPos getPlayerPos() {
@@ -49,30 +125,33 @@ public class PathFinderContext {
     }
 
     public @Nullable BlockState getBlockState(BlockPos pos) {
-        Chunk chunk = world.getChunk(pos.getX() >> 4, pos.getZ() >> 4);
-        if (chunk == null || chunk.getStatus() != ChunkStatus.FULL) {
-            return null; // Return null if the chunk isn't fully loaded or does not exist
-        }
+        blockLookups++;
+        // null if the chunk isn't loaded or does not exist
+        return worldView.getBlockStateOrNull(pos);
+    }
 
-        return chunk.getBlockState(pos);
+    /**
+     * @return how many block states were read from the world view so far
+     */
+    public long getBlockLookups() {
+        return blockLookups;
     }
 
-    public @Nullable FluidState getFluidState(BlockPos pos) {
-        Chunk chunk = world.getChunk(pos.getX() >> 4, pos.getZ() >> 4);
-        if (chunk == null || chunk.getStatus() != ChunkStatus.FULL) {
-            return null; // Return null if the chunk isn't fully loaded or does not exist
-        }
+    /**
+     * @return how many lines were traced through the world so far
+     */
+    public long getRaycasts() {
+        return raycasts;
+    }
 
-        return chunk.getFluidState(pos);
+    public @Nullable FluidState getFluidState(BlockPos pos) {
+        BlockState blockState = getBlockState(pos);
+        return blockState == null ? null : blockState.getFluidState();
     }
 
     public @Nullable Block getBlockAt(BlockPos pos) {
-        Chunk chunk = world.getChunk(pos.getX() >> 4, pos.getZ() >> 4);
-        if (chunk == null || chunk.getStatus() != ChunkStatus.FULL) {
-            return null; // Return null if the chunk isn't fully loaded or does not exist
-        }
-
-        return chunk.getBlockState(pos).getBlock();
+        BlockState blockState = getBlockState(pos);
+        return blockState == null ? null : blockState.getBlock();
     }
 
     public boolean blockExistsAt(BlockPos pos) {
@@ -80,37 +159,124 @@ public class PathFinderContext {
     }
 
     public VoxelShape getBlockShape(BlockState blockState, BlockPos pos) {
-        return blockState.getCollisionShape(world, pos);
+        return blockState.getCollisionShape(worldView, pos);
     }
 
     public VoxelShape getFluidShape(BlockState blockState, BlockPos pos) {
-        return blockState.getCollisionShape(world, pos);
+        return blockState.getCollisionShape(worldView, pos);
     }
 
     public boolean canClipInto(BlockState blockState, BlockPos pos) {
-        if (blockState == null) {
-            return false;
+        return worldView.isCollisionEmpty(blockState, pos);
+    }
+
+    /**
+     * @return the cached passability of the section containing the position, or null if it's not available
+     */
+    public @Nullable SectionPassability getPassability(BlockPos pos) {
+        return getPassability(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    public @Nullable SectionPassability getPassability(int x, int y, int z) {
+        if (passabilityCache == null || worldView.isOutOfHeightLimit(y)) {
+            return null;
+        }
+        int sectionX = ChunkSectionPos.getSectionCoord(x);
+        int sectionY = ChunkSectionPos.getSectionCoord(y);
+        int sectionZ = ChunkSectionPos.getSectionCoord(z);
+        long key = ChunkSectionPos.asLong(sectionX, sectionY, sectionZ);
+        if (key != lastSectionKey) {
+            lastSection = passabilityCache.getSection(worldView, sectionX, sectionY, sectionZ);
+            lastSectionKey = key;
         }
-        return blockState.isAir() || getBlockShape(blockState, pos).isEmpty();
+        return lastSection;
+    }
+
+    /**
+     * Forgets everything this context remembers about the world, must be called after blocks changed
+     * (the passability cache takes care of itself).
+     */
+    public void clearCaches() {
+        lastSectionKey = Long.MAX_VALUE;
+        lastSection = null;
+    }
+
+    public boolean canClipInto(BlockPos pos) {
+        SectionPassability section = getPassability(pos);
+        if (section != null) {
+            return section.canClipInto(pos.getX(), pos.getY(), pos.getZ());
+        }
+        return canClipInto(getBlockState(pos), pos);
+    }
+
+    public boolean canClipInto(int x, int y, int z) {
+        SectionPassability section = getPassability(x, y, z);
+        if (section != null) {
+            return section.canClipInto(x, y, z);
+        }
+        cursor.set(x, y, z);
+        return canClipInto(getBlockState(cursor), cursor);
+    }
+
+    public boolean canPlayerStandAt(int x, int y, int z) {
+        SectionPassability section = getPassability(x, y, z);
+        if (section != null) {
+            return section.isStandable(x, y, z);
+        }
+        return !canClipInto(x, y - 1, z) && canClipInto(x, y, z) && canClipInto(x, y + 1, z);
+    }
+
+    public boolean isUnderWater(int x, int y, int z) {
+        SectionPassability section = getPassability(x, y, z);
+        if (section != null) {
+            return section.isWater(x, y, z);
+        }
+        BlockState block = getBlockState(cursor.set(x, y, z));
+        return (block != null && block.isOf(Blocks.WATER));
+    }
+
+    public boolean isUnderLava(int x, int y, int z) {
+        SectionPassability section = getPassability(x, y, z);
+        if (section != null) {
+            return section.isLava(x, y, z);
+        }
+        BlockState block = getBlockState(cursor.set(x, y, z));
+        return (block != null && block.isOf(Blocks.LAVA));
     }
 
     public boolean canPlayerStandAt(BlockPos pos) {
+        SectionPassability section = getPassability(pos);
+        if (section != null) {
+            return section.isStandable(pos.getX(), pos.getY(), pos.getZ());
+        }
         return (!canClipInto(getBlockState(pos.down()), pos.down())) &&
                 canClipInto(getBlockState(pos), pos) &&
                 canClipInto(getBlockState(pos.up()), pos.up());
     }
 
     public boolean isUnderWater(BlockPos pos) {
+        SectionPassability section = getPassability(pos);
+        if (section != null) {
+            return section.isWater(pos.getX(), pos.getY(), pos.getZ());
+        }
         BlockState block = getBlockState(pos);
         return (block != null && block.isOf(Blocks.WATER));
     }
 
     public boolean isUnderLava(BlockPos pos) {
+        SectionPassability section = getPassability(pos);
+        if (section != null) {
+            return section.isLava(pos.getX(), pos.getY(), pos.getZ());
+        }
         BlockState block = getBlockState(pos);
         return (block != null && block.isOf(Blocks.LAVA));
     }
 
     public boolean isSubmerged(BlockPos pos) {
+        SectionPassability section = getPassability(pos);
+        if (section != null) {
+            return section.isWater(pos.getX(), pos.getY(), pos.getZ()) || section.isLava(pos.getX(), pos.getY(), pos.getZ());
+        }
         BlockState block = getBlockState(pos);
         return (block != null && (block.isOf(Blocks.LAVA) || block.isOf(Blocks.WATER)));
     }
@@ -140,178 +306,244 @@ public class PathFinderContext {
         return safeHeights;
     }
 
-    // TODO: update raycast to only care about blocks that have collision with the player
+    /**
+     * @return true if every block on the line between the centers of the two blocks is solid
+     */
     public boolean raycastHitsAll(BlockPos startPos, BlockPos endPos) {
-        Vec3d start = startPos.toCenterPos();
-        Vec3d end = endPos.toCenterPos();
-
-        RaycastContext context = new RaycastContext(
-                start,
-                end,
-                RaycastContext.ShapeType.COLLIDER,
-                RaycastContext.FluidHandling.ANY,
-                player
-        );
-
-        List<HitResult.Type> hitResultTypes = new ArrayList<>();
-
-        BlockView.raycast(start, end, context, (innerContext, pos) -> {
-            BlockState blockState = this.getBlockState(pos);
-            FluidState fluidState = this.getFluidState(pos);
-            assert blockState != null;
-            VoxelShape voxelShape = innerContext.getBlockShape(blockState, world, pos);
-            BlockHitResult blockHitResult = world.raycastBlock(start, end, pos, voxelShape, blockState);
-            VoxelShape voxelShape2 = innerContext.getFluidShape(fluidState, world, pos);
-            BlockHitResult blockHitResult2 = voxelShape2.raycast(start, end, pos);
-            double d = blockHitResult == null ? Double.MAX_VALUE : innerContext.getStart().squaredDistanceTo(blockHitResult.getPos());
-            double e = blockHitResult2 == null ? Double.MAX_VALUE : innerContext.getStart().squaredDistanceTo(blockHitResult2.getPos());
-            BlockHitResult finalHitResult = d <= e ? blockHitResult : blockHitResult2;
-            hitResultTypes.add(finalHitResult == null ? HitResult.Type.MISS : finalHitResult.getType());
-            return null;
-        }, innerContext -> {
-            Vec3d vec3d = innerContext.getStart().subtract(innerContext.getEnd());
-            return BlockHitResult.createMissed(innerContext.getEnd(), Direction.getFacing(vec3d.x, vec3d.y, vec3d.z), BlockPos.ofFloored(innerContext.getEnd()));
-        });
-
-        for (HitResult.Type hittype : hitResultTypes){
-            switch (hittype) {
-                case BLOCK, ENTITY -> {
-                    continue;
-                }
-                default -> {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return traverse(startPos, endPos, solidVisitor);
     }
 
+    /**
+     * @return true if any block on the line between the centers of the two blocks is solid
+     */
     public boolean raycastHitsAny(BlockPos startPos, BlockPos endPos) {
-        Vec3d start = startPos.toCenterPos();
-        Vec3d end = endPos.toCenterPos();
-
-        RaycastContext context = new RaycastContext(
-                start,
-                end,
-                RaycastContext.ShapeType.COLLIDER,
-                RaycastContext.FluidHandling.ANY,
-                player
-        );
+        return !traverse(startPos, endPos, clearVisitor);
+    }
 
-        BlockHitResult blockHitResult = player.getWorld().raycast(context);
-        switch (blockHitResult.getType()) {
-            case BLOCK, ENTITY -> {
-                return true;
-            }
-            default -> {
-                return false;
-            }
-        }
+    /**
+     * Checks in a single pass that the player can walk straight from one position to the other: along
+     * the line between the two, the blocks at the feet and the head must be clear and the block below
+     * must be solid, the two positions are usually at the same height.
+     *
+     * @return true if the player can walk the line without running into anything or falling
+     */
+    public boolean hasClearCorridor(BlockPos startPos, BlockPos endPos) {
+        return traverse(startPos, endPos, corridorVisitor);
+    }
+
+    private boolean traverse(BlockPos startPos, BlockPos endPos, VoxelTraversal.CellVisitor visitor) {
+        raycasts++;
+        return VoxelTraversal.traverse(
+                startPos.getX() + 0.5, startPos.getY() + 0.5, startPos.getZ() + 0.5,
+                endPos.getX() + 0.5, endPos.getY() + 0.5, endPos.getZ() + 0.5,
+                visitor
+        );
     }
 
+    /**
+     * Removes the nodes the player doesn't need to visit, by pulling the path tight: starting from a node,
+     * the segment is extended node by node as long as the player can move straight from its start to
+     * the candidate, then the search continues from the last node that could be reached.
+     * <p>
+     * segments never cross a change of manoeuvre and are at most {@link #MAX_SIMPLIFY_SEGMENT} nodes
+     * long, so the cost is O(path length * segment length).
+     */
     public List<PathNode> simplifyPath(List<PathNode> path) {
-        // this simple algorithm tries to simplify the path as much as possible without changing it
-        // we check if any group of 3 consecutive nodes in the path can be simplified by moving directly
-        // from the first one to the last if so, remove the middle node.
-        // iterate until nothing changes.
-
-        while (true) {
-            List<PathNode> simplePath = new ArrayList<>(path);
-            for (int i = 0; i < path.size()-2; i+=3) {
-                PathNode p1 = path.get(i);
-                PathNode p2 = path.get(i+1);
-                PathNode p3 = path.get(i+2);
-
-                // we can only simplify the path if the manoeuvre in all nodes is the same
-                if (!(p1.getManoeuvre() == p2.getManoeuvre() && p2.getManoeuvre() == p3.getManoeuvre())) {
-                    continue;
-                }
+        if (path.size() < 3) {
+            return new ArrayList<>(path);
+        }
 
-                // we can only simplify WALK, SWIM or CLIMB manoeuvres, other manoeuvres are more complex and
-                // need to be followed precisely per each node.
-                switch (p1.getManoeuvre()) {
-                    case WALK, SWIM, CLIMB, FALL -> {}
-                    default -> {continue;}
+        List<PathNode> simplePath = new ArrayList<>();
+        simplePath.add(path.get(0));
+        int anchorIdx = 0;
+        while (anchorIdx < path.size() - 1) {
+            PathNode anchor = path.get(anchorIdx);
+            int endIdx = anchorIdx + 1;
+
+            // we can only simplify WALK, SWIM, CLIMB or FALL manoeuvres, other manoeuvres are more complex and
+            // need to be followed precisely per each node.
+            boolean simplifiable = switch (anchor.getManoeuvre()) {
+                case WALK, SWIM, CLIMB, FALL -> true;
+                default -> false;
+            };
+            if (simplifiable && path.get(endIdx).getManoeuvre() == anchor.getManoeuvre()) {
+                boolean collinear = true;
+                int lastIdx = Math.min(path.size() - 1, anchorIdx + MAX_SIMPLIFY_SEGMENT);
+                for (int candidateIdx = anchorIdx + 2; candidateIdx <= lastIdx; candidateIdx++) {
+                    PathNode previous = path.get(candidateIdx - 1);
+                    PathNode candidate = path.get(candidateIdx);
+                    if (candidate.getManoeuvre() != anchor.getManoeuvre()) {
+                        break;
+                    }
+                    // while the nodes are on a straight line, skipping them doesn't change the path
+                    collinear = collinear && MathUtils.areCollinear(
+                            anchor.getStandingPosition(), previous.getStandingPosition(), candidate.getStandingPosition()
+                    );
+                    if (!collinear && !canMoveStraight(anchor, candidate)) {
+                        break;
+                    }
+                    endIdx = candidateIdx;
                 }
+            }
 
-                // if the nodes are collinear we can remove the middle one,
-                // else if the player doesn't collide with blocks, moving from p1 to p3 and
-                // there's solid ground at all times moving from p1 to p3, remove the middle node
-                if (MathUtils.areCollinear(p1.getStandingPosition(), p2.getStandingPosition(), p3.getStandingPosition())) {
-                    simplePath.remove(p2);
-                } else if (raycastHitsAll(p1.pos.down(), p3.pos.down()) && !raycastHitsAny(p1.pos, p3.pos) && !raycastHitsAny(p1.pos.up(), p3.pos.up())) {
-                    simplePath.remove(p2);
-                }
+            simplePath.add(path.get(endIdx));
+            anchorIdx = endIdx;
+        }
+        return simplePath;
+    }
+
+    /**
+     * @return true if the player can move in a straight line between two nodes, the nodes must share
+     *         the same manoeuvre
+     */
+    public boolean canMoveStraight(PathNode from, PathNode to) {
+        if (from.getManoeuvre() != to.getManoeuvre()) {
+            return false;
+        }
+        switch (from.getManoeuvre()) {
+            case WALK -> {
+                // the player doesn't collide with blocks and there's solid ground at all times,
+                // slopes are left alone since the ground under the line isn't where the player walks
+                return from.pos.getY() == to.pos.getY() && hasClearCorridor(from.pos, to.pos);
             }
-            if (simplePath.equals(path)) {
-                break;
+            case SWIM -> {
+                return !raycastHitsAny(from.pos, to.pos) && !raycastHitsAny(from.pos.up(), to.pos.up());
+            }
+            default -> {
+                return false;
             }
-            path = simplePath;
         }
-
-        return path;
     }
 
     public PathManoeuvre findManoeuvre(PathNode node, BlockPos neighborPos) {
-        PathManoeuvre manoeuvre = PathManoeuvre.NULL; // TODO: handle other manoeuvres
+        return findManoeuvre(neighborPos.getX(), neighborPos.getY(), neighborPos.getZ());
+    }
 
-        if (canPlayerWalkAt(neighborPos)) {
-            manoeuvre = PathManoeuvre.WALK;
-        } else if (isUnderWater(neighborPos) || (isUnderLava(neighborPos) && player.isFireImmune())) {
-            manoeuvre = PathManoeuvre.SWIM;
-        }
+    public PathManoeuvre findManoeuvre(int x, int y, int z) {
         // TODO: handle other manoeuvres
-
-        return manoeuvre;
+        boolean water = isUnderWater(x, y, z);
+        boolean lava = isUnderLava(x, y, z);
+        if (!water && !lava && canPlayerStandAt(x, y, z)) {
+            return PathManoeuvre.WALK;
+        } else if (water || (lava && player != null && player.isFireImmune())) {
+            return PathManoeuvre.SWIM;
+        }
+        return PathManoeuvre.NULL;
     }
 
-    public @NotNull List<PathNode> getNeighborsOf(PathNode node, boolean allow_unsafe) {
-        BlockPos current = node.toBlockPos();
-        List<PathNode> neighbors = new ArrayList<>();
-        for (int x = -1; x <= 1; x++) {
-            for (int y = -5; y <= 1; y++) { // we can only drop to 5 blocks down
-                for (int z = -1; z <= 1; z++) {
-                    if (x == 0 && y == 0 && z == 0) continue;
-
-                    Vec3d deltaPos = new Vec3d(x, y, z);
-
-                    BlockPos neighborPos = current.add(x, y, z);
-                    BlockState neighborBlockState = getBlockState(neighborPos);
-
-                    if (neighborBlockState == null) {
-                        continue;
-                    }
-
-                    if (deltaPos.length() > 1) {
-                        if (raycastHitsAny(node.pos, neighborPos) || raycastHitsAny(node.pos.up(), neighborPos.up())) {
-                            continue;
-                        }
-                    }
-
-                    PathManoeuvre manoeuvre = findManoeuvre(node, neighborPos);
+    /**
+     * Finds every position the player can move to from the given position in a single move, without
+     * allocating anything.
+     *
+     * @param out the buffer to write the neighbors to, it's cleared first
+     * @return the number of neighbors
+     */
+    public int collectNeighbors(int x, int y, int z, NeighborBuffer out) {
+        out.clear();
+        // room to jump, needed to step up
+        boolean canJump = canClipInto(x, y + 2, z);
+        for (int i = 0; i < MOVE_DX.length; i++) {
+            collectMove(x, y, z, i, canJump, out);
+        }
 
-                    if (manoeuvre == PathManoeuvre.NULL && !allow_unsafe) {
-                        continue;
-                    }
+        // straight up and down, only possible while swimming
+        PathManoeuvre up = findManoeuvre(x, y + 1, z);
+        if (up != PathManoeuvre.NULL) {
+            out.add(x, y + 1, z, up, 1.0);
+        }
+        PathManoeuvre down = findManoeuvre(x, y - 1, z);
+        if (down != PathManoeuvre.NULL) {
+            out.add(x, y - 1, z, down, 1.0);
+        }
+        return out.size();
+    }
 
-                    /*if (isLineBlocked(current, neighborPos) && !allow_unsafe) {
-                        WanderingPlayerClient.getLogger().info(
-                                "Skipped neighbor node for being blocked: {} -> {}", current, neighborPos
-                        );
-                        continue;
-                    }*/
+    // the neighbor reached by horizontal move `i` from (x, y, z), if any, walking, dropping or stepping up
+    private void collectMove(int x, int y, int z, int i, boolean canJump, NeighborBuffer out) {
+        int neighborX = x + MOVE_DX[i];
+        int neighborZ = z + MOVE_DZ[i];
+        boolean diagonal = MOVE_DX[i] != 0 && MOVE_DZ[i] != 0;
+        // the player is too wide to squeeze between two blocks that only touch at their corners
+        if (diagonal && !(canClipInto(neighborX, y, z) && canClipInto(neighborX, y + 1, z) &&
+                canClipInto(x, y, neighborZ) && canClipInto(x, y + 1, neighborZ))) {
+            return;
+        }
 
-                    neighbors.add(new PathNode(neighborPos, manoeuvre));
+        PathManoeuvre manoeuvre = findManoeuvre(neighborX, y, neighborZ);
+        if (manoeuvre != PathManoeuvre.NULL) {
+            out.add(neighborX, y, neighborZ, manoeuvre, MOVE_COSTS[i][MAX_DROP]);
+        } else if (canClipInto(neighborX, y, neighborZ) && canClipInto(neighborX, y + 1, neighborZ)) {
+            // nothing to stand on, scan down the column once to find where the player lands
+            for (int drop = 1; drop <= MAX_DROP; drop++) {
+                int neighborY = y - drop;
+                manoeuvre = findManoeuvre(neighborX, neighborY, neighborZ);
+                if (manoeuvre != PathManoeuvre.NULL) {
+                    out.add(neighborX, neighborY, neighborZ, manoeuvre, MOVE_COSTS[i][MAX_DROP - drop]);
+                    break;
+                }
+                if (!canClipInto(neighborX, neighborY, neighborZ) || isUnderLava(neighborX, neighborY, neighborZ)) {
+                    break;
                 }
             }
+        } else if (canJump && (!diagonal || (canClipInto(neighborX, y + 2, z) && canClipInto(x, y + 2, neighborZ)))) {
+            // something is in the way, try to step on top of it
+            manoeuvre = findManoeuvre(neighborX, y + 1, neighborZ);
+            if (manoeuvre != PathManoeuvre.NULL) {
+                out.add(neighborX, y + 1, neighborZ, manoeuvre, MOVE_COSTS[i][MAX_DROP + 1]);
+            }
         }
+    }
 
-        //ClientMain.getLogger().info("Node: {}, Neighbors: {}", node.toCenterPos(), neighbors.size());
-        return neighbors;
+    public int collectNeighbors(PathNode node, NeighborBuffer out) {
+        return collectNeighbors(node.pos.getX(), node.pos.getY(), node.pos.getZ(), out);
     }
 
     public @NotNull List<PathNode> getNeighborsOf(PathNode node) {
-        return getNeighborsOf(node, false);
+        int count = collectNeighbors(node, listBuffer);
+        List<PathNode> neighbors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            neighbors.add(listBuffer.toNode(i));
+        }
+        return neighbors;
+    }
+
+    /**
+     * The inverse of {@link #getNeighborsOf(PathNode)}, finds the nodes that have the given node as one of
+     * their neighbors, used by searches that run from the goal back to the start.
+     */
+    public @NotNull List<PathNode> getPredecessorsOf(PathNode node) {
+        List<PathNode> predecessors = new ArrayList<>();
+        int x = node.pos.getX(), y = node.pos.getY(), z = node.pos.getZ();
+        if (findManoeuvre(x, y, z) == PathManoeuvre.NULL) {
+            return predecessors; // nothing can move into this node
+        }
+        long hash = node.getHash();
+        // a horizontal move into the node comes from one cell back along it, level, one block lower
+        // (stepping up) or up to MAX_DROP blocks higher (dropping down), only that one move is checked
+        for (int i = 0; i < MOVE_DX.length; i++) {
+            int fromX = x - MOVE_DX[i];
+            int fromZ = z - MOVE_DZ[i];
+            for (int dy = -1; dy <= MAX_DROP; dy++) {
+                int fromY = y + dy;
+                PathManoeuvre manoeuvre = findManoeuvre(fromX, fromY, fromZ);
+                if (manoeuvre == PathManoeuvre.NULL) {
+                    continue;
+                }
+                predecessorBuffer.clear();
+                collectMove(fromX, fromY, fromZ, i, canClipInto(fromX, fromY + 2, fromZ), predecessorBuffer);
+                if (predecessorBuffer.contains(hash)) {
+                    predecessors.add(new PathNode(fromX, fromY, fromZ, manoeuvre));
+                }
+            }
+        }
+        // straight up and down, the node itself being a node is all these moves need
+        for (int dy = -1; dy <= 1; dy += 2) {
+            PathManoeuvre manoeuvre = findManoeuvre(x, y + dy, z);
+            if (manoeuvre != PathManoeuvre.NULL) {
+                predecessors.add(new PathNode(x, y + dy, z, manoeuvre));
+            }
+        }
+        return predecessors;
     }
 
     public @NotNull List<PathNode> getHorizontalNeighborsOf(PathNode node) {
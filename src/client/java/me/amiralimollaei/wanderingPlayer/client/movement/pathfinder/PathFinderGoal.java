@@ -4,7 +4,7 @@ import net.minecraft.util.math.BlockPos;
 
 public class PathFinderGoal {
     public BlockPos pos;
-    public int hashCode;
+    public long hashCode;
 
     public PathFinderGoal(BlockPos pos) {
         this.pos = pos;
@@ -15,7 +15,7 @@ public class PathFinderGoal {
         return pos;
     }
 
-    public int getHash() {
+    public long getHash() {
         return hashCode;
     }
 }
@@ -5,7 +5,7 @@ import net.minecraft.util.math.Vec3d;
 
 public class PathNode {
     public final BlockPos pos;
-    public final int hashCode;
+    public final long hashCode;
     public double prevVelocity = 0;
     public Vec3d prevDelta = Vec3d.ZERO;
     public PathManoeuvre manoeuvre;
@@ -22,11 +22,12 @@ public class PathNode {
         this.manoeuvre = manoeuvre;
     }
 
-    public static int hash(int x, int y, int z) {
-        return y & 0xFF | (x & 32767) << 8 | (z & 32767) << 24 | (x < 0 ? Integer.MIN_VALUE : 0) | (z < 0 ? 32768 : 0);
+    // packs the full position into 64 bits (same layout as BlockPos#asLong), so no two positions collide
+    public static long hash(int x, int y, int z) {
+        return BlockPos.asLong(x, y, z);
     }
 
-    public int getHash() {
+    public long getHash() {
         return hashCode;
     }
 
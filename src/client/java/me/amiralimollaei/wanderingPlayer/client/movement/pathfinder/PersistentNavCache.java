@@ -0,0 +1,97 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import me.amiralimollaei.wanderingPlayer.client.WanderingPlayerClient;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.SharedConstants;
+import net.minecraft.block.Block;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ServerInfo;
+import net.minecraft.client.world.ClientWorld;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/*
+Opens the NavCacheFile of the server and dimension the client is in and hands it to the
+PassabilityCache, the file is switched whenever the client world changes (joining a server,
+changing dimension) and closed when leaving the server.
+
+files live in `<game dir>/wandering-player/navcache/<server>/<dimension>.bin`, singleplayer
+worlds are told apart by their save name.
+ */
+public class PersistentNavCache {
+    private final MinecraftClient client;
+    private final PassabilityCache passabilityCache;
+    private @Nullable ClientWorld world = null;
+    private @Nullable NavCacheFile file = null;
+
+    public PersistentNavCache(MinecraftClient client, PassabilityCache passabilityCache) {
+        this.client = client;
+        this.passabilityCache = passabilityCache;
+    }
+
+    public void register() {
+        ClientTickEvents.END_CLIENT_TICK.register(client -> {
+            if (client.world != world) {
+                close();
+                world = client.world;
+                if (world != null) {
+                    open(world);
+                }
+            }
+        });
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> {
+            close();
+            world = null;
+        });
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^a-zA-Z0-9._-]", "_");
+    }
+
+    // identifies the game version and the block states, raw state ids are only meaningful with the same ones
+    private static long getRegistryHash() {
+        return (long) SharedConstants.getGameVersion().getName().hashCode() << 32 | Block.STATE_IDS.size();
+    }
+
+    private String getServerName() {
+        if (client.isIntegratedServerRunning() && client.getServer() != null) {
+            return "local_" + client.getServer().getSaveProperties().getLevelName();
+        }
+        ServerInfo server = client.getCurrentServerEntry();
+        return server == null ? "unknown" : server.address;
+    }
+
+    private void open(ClientWorld world) {
+        Path path = FabricLoader.getInstance().getGameDir()
+                .resolve(WanderingPlayerClient.MOD_ID)
+                .resolve("navcache")
+                .resolve(sanitize(getServerName()))
+                .resolve(sanitize(world.getRegistryKey().getValue().toString()) + ".bin");
+        try {
+            file = NavCacheFile.open(path, getRegistryHash());
+            passabilityCache.setPersistentStore(file);
+            WanderingPlayerClient.getLogger().info("opened navigation cache {} with {} sections", path, file.size());
+        } catch (IOException e) {
+            WanderingPlayerClient.getLogger().warn("failed to open navigation cache {}", path, e);
+            file = null;
+        }
+    }
+
+    public void close() {
+        if (file == null) {
+            return;
+        }
+        passabilityCache.setPersistentStore(null);
+        try {
+            file.close();
+        } catch (IOException e) {
+            WanderingPlayerClient.getLogger().debug("failed to close navigation cache", e);
+        }
+        file = null;
+    }
+}
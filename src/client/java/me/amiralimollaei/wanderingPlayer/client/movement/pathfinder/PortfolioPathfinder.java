@@ -0,0 +1,253 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.BlockBox;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Races several planners on the same world view, each on its own thread with its own context,
+different planners win on different terrain, so the latency of a query is set by whichever
+planner suits it best instead of the one picked up front.
+
+the first path that is at most QUALITY_BOUND times longer than the straight line to the goal
+wins right away, otherwise the best path found by DEADLINE_MS (or once every planner is done)
+wins, the other planners are cancelled as soon as there's a winner.
+ */
+public class PortfolioPathfinder extends AStarPathfinderBase {
+    public interface PlannerFactory {
+        AStarPathfinderBase create(PathNode start, PathFinderGoal goal, PathFinderContext context);
+    }
+
+    // a found path wins right away if it's at most this many times longer than the straight line to the goal
+    public final double QUALITY_BOUND = 1.5;
+    // when no path meets the quality bound, the best one found by this time wins
+    public final long DEADLINE_MS = 1_000;
+
+    // the planners run on their own threads, so they don't compete with other searches for the PathService workers
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "wandering-player-portfolio-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    });
+
+    public final List<AStarPathfinderBase> planners = new ArrayList<>();
+    // indices of the planners whose search returned, in the order they returned
+    private final BlockingQueue<Integer> finishedQueue = new LinkedBlockingQueue<>();
+    private final BitSet finished = new BitSet();
+    private boolean started = false;
+    private long startNanos = 0;
+    private long finishNanos = 0;
+    private @Nullable AStarPathfinderBase winner = null;
+    private SearchStatus portfolioStatus = SearchStatus.IN_PROGRESS;
+    private @Nullable List<PathNode> portfolioResult = null;
+
+    /**
+     * @param context   the context of the search, every planner gets its own fork of it
+     * @param factories creates the planners to race
+     */
+    public PortfolioPathfinder(PathNode start, PathFinderGoal goal, PathFinderContext context, List<PlannerFactory> factories) {
+        super(start, goal, context);
+        for (PlannerFactory factory : factories) {
+            planners.add(factory.create(start, goal, context.fork()));
+        }
+    }
+
+    private static double pathLength(List<PathNode> path) {
+        double length = 0;
+        for (int i = 1; i < path.size(); i++) {
+            length += path.get(i - 1).distanceTo(path.get(i));
+        }
+        return length;
+    }
+
+    private boolean meetsQualityBound(AStarPathfinderBase planner) {
+        if (planner.getStatus() != SearchStatus.FOUND || planner.getResult() == null) {
+            return false;
+        }
+        return pathLength(planner.getResult()) <= QUALITY_BOUND * start.distanceTo(goal.getTarget());
+    }
+
+    @Override
+    public SearchStatus searchFor(long sliceMillis) {
+        if (portfolioStatus.isDone()) {
+            return portfolioStatus;
+        }
+        long sliceStart = System.nanoTime();
+        long sliceNanos = TimeUnit.MILLISECONDS.toNanos(sliceMillis);
+        if (!started) {
+            started = true;
+            startNanos = sliceStart;
+            for (int i = 0; i < planners.size(); i++) {
+                int idx = i;
+                AStarPathfinderBase planner = planners.get(i);
+                EXECUTOR.execute(() -> {
+                    try {
+                        planner.search();
+                    } finally {
+                        finishedQueue.add(idx);
+                    }
+                });
+            }
+        }
+
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(DEADLINE_MS);
+        while (finished.cardinality() < planners.size()) {
+            if (isCancelled()) {
+                return finishPortfolio(SearchStatus.CANCELLED, null);
+            }
+            long now = System.nanoTime();
+            if (now - deadline >= 0) {
+                break;
+            }
+            long waitNanos = Math.min(deadline - now, sliceNanos - (now - sliceStart));
+            if (waitNanos <= 0) {
+                return portfolioStatus; // resume in the next slice
+            }
+
+            Integer idx;
+            try {
+                idx = finishedQueue.poll(waitNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return finishPortfolio(SearchStatus.CANCELLED, null);
+            }
+            if (idx == null) {
+                continue;
+            }
+            finished.set(idx);
+            if (meetsQualityBound(planners.get(idx))) {
+                return finishPortfolio(SearchStatus.FOUND, planners.get(idx));
+            }
+        }
+
+        // every planner is done or the deadline passed, take the best of what we have
+        AStarPathfinderBase best = pickBest();
+        return finishPortfolio(best == null ? SearchStatus.FAILED : best.getStatus(), best);
+    }
+
+    // the shortest found path, or the partial path that ends closest to the goal
+    private @Nullable AStarPathfinderBase pickBest() {
+        AStarPathfinderBase best = null;
+        double bestScore = Double.POSITIVE_INFINITY;
+        for (int i = finished.nextSetBit(0); i >= 0; i = finished.nextSetBit(i + 1)) {
+            AStarPathfinderBase planner = planners.get(i);
+            List<PathNode> path = planner.getResult();
+            if (path == null || path.isEmpty()) {
+                continue;
+            }
+            double score;
+            if (planner.getStatus() == SearchStatus.FOUND) {
+                score = pathLength(path);
+            } else if (planner.getStatus() == SearchStatus.PARTIAL) {
+                // any found path beats a partial one
+                score = 1e12 + path.get(path.size() - 1).distanceTo(goal.getTarget());
+            } else {
+                continue;
+            }
+            if (score < bestScore) {
+                bestScore = score;
+                best = planner;
+            }
+        }
+        return best;
+    }
+
+    private SearchStatus finishPortfolio(SearchStatus status, @Nullable AStarPathfinderBase winner) {
+        this.winner = winner;
+        for (AStarPathfinderBase planner : planners) {
+            if (planner != winner) {
+                planner.cancel();
+            }
+        }
+        finishNanos = System.nanoTime();
+        portfolioStatus = status;
+        portfolioResult = winner == null ? null : winner.getResult();
+        return portfolioStatus;
+    }
+
+    /**
+     * @return the planner whose path was taken, null if there's none (yet)
+     */
+    public @Nullable AStarPathfinderBase getWinner() {
+        return winner;
+    }
+
+    @Override
+    public void setBudget(SearchBudget budget) {
+        super.setBudget(budget);
+        for (AStarPathfinderBase planner : planners) {
+            planner.setBudget(budget);
+        }
+    }
+
+    @Override
+    public void setBounds(@Nullable BlockBox bounds) {
+        super.setBounds(bounds);
+        for (AStarPathfinderBase planner : planners) {
+            planner.setBounds(bounds);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        for (AStarPathfinderBase planner : planners) {
+            planner.cancel();
+        }
+    }
+
+    @Override
+    protected List<AStarPathfinderBase> getDelegates() {
+        // the counters of cancelled planners may still move a little while they wind down
+        return planners;
+    }
+
+    @Override
+    public List<PathNode> getResult() {
+        return portfolioResult;
+    }
+
+    @Override
+    public SearchStatus getStatus() {
+        return portfolioStatus;
+    }
+
+    @Override
+    public long getExpansions() {
+        long expansions = 0;
+        for (AStarPathfinderBase planner : planners) {
+            expansions += planner.getExpansions();
+        }
+        return expansions;
+    }
+
+    @Override
+    public long getElapsedNanos() {
+        if (!started) {
+            return 0;
+        }
+        // wall time of the race, not the sum of the planners' time
+        return (portfolioStatus.isDone() ? finishNanos : System.nanoTime()) - startNanos;
+    }
+
+    @Override
+    public void step(PathNode current) {
+        // the search is delegated to the planners
+    }
+}
@@ -0,0 +1,56 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import java.util.Arrays;
+
+/*
+Keeps the last `capacity` values of a metric in a ring buffer, so percentiles reflect recent
+searches only, percentiles are computed on demand by sorting a copy of the window.
+ */
+public class RollingHistogram {
+    private final long[] values;
+    private int next = 0;
+    private int size = 0;
+
+    public RollingHistogram(int capacity) {
+        this.values = new long[capacity];
+    }
+
+    public void record(long value) {
+        values[next] = value;
+        next = (next + 1) % values.length;
+        size = Math.min(size + 1, values.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the value below which the given percentage of the recorded values fall, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, rank))];
+    }
+
+    public long getMax() {
+        return getPercentile(100);
+    }
+
+    public double getMean() {
+        if (size == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i];
+        }
+        return sum / size;
+    }
+}
@@ -0,0 +1,35 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+/*
+Limits how much work a single search is allowed to do, once any of the limits is hit the
+search stops and returns the path to the node closest to the goal (see SearchStatus.PARTIAL).
+ */
+public class SearchBudget {
+    public static final SearchBudget DEFAULT = new SearchBudget(250_000, 5_000, 1_000_000);
+    public static final SearchBudget UNLIMITED = new SearchBudget(Long.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+
+    // maximum number of nodes taken out of the open set
+    public final long maxExpansions;
+    // maximum time spent searching, summed over all time slices
+    public final long maxWallTimeMs;
+    // maximum number of nodes waiting in the open set
+    public final int maxOpenSetSize;
+
+    public SearchBudget(long maxExpansions, long maxWallTimeMs, int maxOpenSetSize) {
+        this.maxExpansions = maxExpansions;
+        this.maxWallTimeMs = maxWallTimeMs;
+        this.maxOpenSetSize = maxOpenSetSize;
+    }
+
+    public SearchBudget withMaxExpansions(long maxExpansions) {
+        return new SearchBudget(maxExpansions, maxWallTimeMs, maxOpenSetSize);
+    }
+
+    public SearchBudget withMaxWallTimeMs(long maxWallTimeMs) {
+        return new SearchBudget(maxExpansions, maxWallTimeMs, maxOpenSetSize);
+    }
+
+    public SearchBudget withMaxOpenSetSize(int maxOpenSetSize) {
+        return new SearchBudget(maxExpansions, maxWallTimeMs, maxOpenSetSize);
+    }
+}
@@ -0,0 +1,98 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/*
+What a single search cost, collected by AStarPathfinderBase while it runs, see
+AStarPathfinderBase#getMetrics for the totals of a search.
+ */
+public class SearchMetrics {
+    public enum Counter {
+        // nodes taken from the open set
+        EXPANDED,
+        // nodes added to the open set, or moved in it because their score changed
+        PUSHED,
+        // nodes that were added to the open set again after they had been expanded
+        REOPENED,
+        // block states read from the world view (passability cache hits are not counted)
+        BLOCK_LOOKUPS,
+        // lines traced through the world
+        RAYCASTS,
+        // the largest the open set got
+        PEAK_OPEN_SET,
+        WALL_NANOS,
+        // bytes allocated by the searching thread, 0 if the JVM can't tell
+        ALLOCATED_BYTES;
+
+        public final String key = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final long[] values = new long[Counter.values().length];
+
+    /**
+     * @return the bytes allocated by the current thread so far, or -1 if the JVM doesn't track them
+     */
+    public static long getAllocatedBytes() {
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    public long get(Counter counter) {
+        return values[counter.ordinal()];
+    }
+
+    public void set(Counter counter, long value) {
+        values[counter.ordinal()] = value;
+    }
+
+    public void add(Counter counter, long value) {
+        values[counter.ordinal()] += value;
+    }
+
+    public void increment(Counter counter) {
+        values[counter.ordinal()]++;
+    }
+
+    public void max(Counter counter, long value) {
+        values[counter.ordinal()] = Math.max(values[counter.ordinal()], value);
+    }
+
+    /**
+     * Adds the counters of another search (e.g. one this search delegated to) to these.
+     */
+    public void merge(SearchMetrics other) {
+        for (Counter counter : Counter.values()) {
+            if (counter == Counter.PEAK_OPEN_SET) {
+                max(counter, other.get(counter));
+            } else {
+                add(counter, other.get(counter));
+            }
+        }
+    }
+
+    public SearchMetrics copy() {
+        SearchMetrics copy = new SearchMetrics();
+        System.arraycopy(values, 0, copy.values, 0, values.length);
+        return copy;
+    }
+
+    /**
+     * @return the counters as space separated `key=value` pairs, for log lines
+     */
+    public String toLogString() {
+        StringBuilder builder = new StringBuilder();
+        for (Counter counter : Counter.values()) {
+            if (!builder.isEmpty()) {
+                builder.append(' ');
+            }
+            builder.append(counter.key).append('=').append(get(counter));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/*
+Rolling histograms of the metrics of the last searches, one per counter, fed by PathService
+once a search finishes and read by the debug HUD (or anything else that wants to tune the
+pathfinder based on data).
+ */
+public class SearchStatistics {
+    // how many of the last searches the histograms cover
+    public final int WINDOW = 128;
+
+    private final Map<SearchMetrics.Counter, RollingHistogram> histograms = new EnumMap<>(SearchMetrics.Counter.class);
+    private @Nullable SearchMetrics lastMetrics = null;
+    private @Nullable SearchStatus lastStatus = null;
+    private @Nullable String lastPathfinder = null;
+    private long searchCount = 0;
+
+    public SearchStatistics() {
+        for (SearchMetrics.Counter counter : SearchMetrics.Counter.values()) {
+            histograms.put(counter, new RollingHistogram(WINDOW));
+        }
+    }
+
+    public synchronized void record(AStarPathfinderBase pathfinder, SearchMetrics metrics) {
+        for (SearchMetrics.Counter counter : SearchMetrics.Counter.values()) {
+            histograms.get(counter).record(metrics.get(counter));
+        }
+        lastMetrics = metrics;
+        lastStatus = pathfinder.getStatus();
+        lastPathfinder = pathfinder.getClass().getSimpleName();
+        searchCount++;
+    }
+
+    /**
+     * @return the 50th, 90th and 99th percentiles and the maximum of the counter over the window
+     */
+    public synchronized long[] getPercentiles(SearchMetrics.Counter counter) {
+        RollingHistogram histogram = histograms.get(counter);
+        return new long[]{
+                histogram.getPercentile(50),
+                histogram.getPercentile(90),
+                histogram.getPercentile(99),
+                histogram.getMax()
+        };
+    }
+
+    public synchronized @Nullable SearchMetrics getLastMetrics() {
+        return lastMetrics == null ? null : lastMetrics.copy();
+    }
+
+    public synchronized @Nullable SearchStatus getLastStatus() {
+        return lastStatus;
+    }
+
+    public synchronized @Nullable String getLastPathfinder() {
+        return lastPathfinder;
+    }
+
+    public synchronized long getSearchCount() {
+        return searchCount;
+    }
+}
@@ -0,0 +1,17 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+// the state of a (possibly time sliced) search
+public enum SearchStatus {
+    IN_PROGRESS,
+    // the goal was reached
+    FOUND,
+    // a budget ran out, the result leads to the node closest to the goal
+    PARTIAL,
+    // every reachable node was expanded without reaching the goal
+    FAILED,
+    CANCELLED;
+
+    public boolean isDone() {
+        return this != IN_PROGRESS;
+    }
+}
@@ -0,0 +1,106 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+The walkable regions of one chunk section, built from its passability by greedily merging the
+standable cells of every layer into rectangles, together with the passability itself so the
+mesh can tell whether the player can step or drop between regions.
+
+instances are immutable once built.
+ */
+public class SectionNavMesh {
+    public final int sectionX;
+    public final int sectionY;
+    public final int sectionZ;
+    public final long version;
+    public final SectionPassability passability;
+    public final List<NavRegion> regions;
+    // index of the region containing each standable cell, -1 for the other cells, null if there are no regions
+    private final short[] regionAt;
+
+    private SectionNavMesh(int sectionX, int sectionY, int sectionZ, SectionPassability passability,
+                           List<NavRegion> regions, short[] regionAt) {
+        this.sectionX = sectionX;
+        this.sectionY = sectionY;
+        this.sectionZ = sectionZ;
+        this.version = passability.version;
+        this.passability = passability;
+        this.regions = Collections.unmodifiableList(regions);
+        this.regionAt = regionAt;
+    }
+
+    /**
+     * Merges the standable cells of every layer of the section into rectangles: starting from the first
+     * cell that isn't covered yet, the rectangle is grown along x as far as possible, then along z as
+     * long as the whole row is standable and not covered yet.
+     */
+    public static SectionNavMesh build(SectionPassability passability, int sectionX, int sectionY, int sectionZ) {
+        if (!passability.hasStandable()) {
+            // most sections are air or solid, they only keep their passability for the moves around them
+            return new SectionNavMesh(sectionX, sectionY, sectionZ, passability, List.of(), null);
+        }
+        List<NavRegion> regions = new ArrayList<>();
+        short[] regionAt = new short[4096];
+        Arrays.fill(regionAt, (short) -1);
+        int minX = sectionX << 4, minY = sectionY << 4, minZ = sectionZ << 4;
+
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    if (!isFree(passability, regionAt, x, y, z)) {
+                        continue;
+                    }
+                    int endX = x;
+                    while (endX + 1 < 16 && isFree(passability, regionAt, endX + 1, y, z)) {
+                        endX++;
+                    }
+                    int endZ = z;
+                    while (endZ + 1 < 16 && isRowFree(passability, regionAt, x, endX, y, endZ + 1)) {
+                        endZ++;
+                    }
+
+                    short index = (short) regions.size();
+                    regions.add(new NavRegion(sectionX, sectionY, sectionZ, index, minY + y,
+                            minX + x, minZ + z, minX + endX, minZ + endZ));
+                    for (int rz = z; rz <= endZ; rz++) {
+                        for (int rx = x; rx <= endX; rx++) {
+                            regionAt[SectionPassability.index(rx, y, rz)] = index;
+                        }
+                    }
+                }
+            }
+        }
+        return new SectionNavMesh(sectionX, sectionY, sectionZ, passability, regions, regionAt);
+    }
+
+    private static boolean isFree(SectionPassability passability, short[] regionAt, int x, int y, int z) {
+        return passability.isStandable(x, y, z) && regionAt[SectionPassability.index(x, y, z)] == -1;
+    }
+
+    private static boolean isRowFree(SectionPassability passability, short[] regionAt, int fromX, int toX, int y, int z) {
+        for (int x = fromX; x <= toX; x++) {
+            if (!isFree(passability, regionAt, x, y, z)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param x world coordinates, the position must be inside this section
+     * @return the region the player stands in at the given position, or null if it isn't standable
+     */
+    public @Nullable NavRegion getRegionAt(int x, int y, int z) {
+        if (regionAt == null) {
+            return null;
+        }
+        int index = regionAt[SectionPassability.index(x, y, z)];
+        return index == -1 ? null : regions.get(index);
+    }
+}
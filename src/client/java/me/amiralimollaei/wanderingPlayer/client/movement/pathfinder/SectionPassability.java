@@ -0,0 +1,165 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+
+import java.nio.LongBuffer;
+
+/*
+Passability facts of a 16x16x16 chunk section, one bit per block for each fact, so the
+pathfinder can answer "can the player stand here?" with a bit test instead of looking at
+block states and collision shapes.
+
+instances are immutable once built.
+ */
+public class SectionPassability {
+    private static final int WORDS = 4096 / 64;
+    // longs written by writeTo, one bitset per fact
+    public static final int SERIALIZED_LONGS = 5 * WORDS;
+
+    public final long version;
+    // blocks the player collides with (unloaded blocks count as solid)
+    private final long[] solid = new long[WORDS];
+    // blocks without collision (air, grass, flowers, water, ...)
+    private final long[] clipThrough = new long[WORDS];
+    private final long[] water = new long[WORDS];
+    private final long[] lava = new long[WORDS];
+    // solid block below, clip-through block at the feet and at the head
+    private final long[] standable = new long[WORDS];
+
+    private SectionPassability(long version) {
+        this.version = version;
+    }
+
+    public static int index(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+    private static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Derives the passability of a section from the world view, the rows at the bottom and top of the
+     * section also read the sections below and above it.
+     */
+    public static SectionPassability build(WorldView view, int sectionX, int sectionY, int sectionZ, long version) {
+        SectionPassability section = new SectionPassability(version);
+        int minX = sectionX << 4, minY = sectionY << 4, minZ = sectionZ << 4;
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+
+        // clip-through of the 18 layers from one below to one above the section, used for standability
+        boolean[] clipColumn = new boolean[18 * 256];
+        for (int y = -1; y <= 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    pos.set(minX + x, minY + y, minZ + z);
+                    BlockState blockState = view.getBlockStateOrNull(pos);
+                    boolean clip = view.isCollisionEmpty(blockState, pos);
+                    clipColumn[(y + 1) << 8 | z << 4 | x] = clip;
+                    if (y < 0 || y > 15) {
+                        continue;
+                    }
+                    int index = index(x, y, z);
+                    if (clip) {
+                        set(section.clipThrough, index);
+                    } else {
+                        set(section.solid, index);
+                    }
+                    if (blockState != null && blockState.isOf(Blocks.WATER)) {
+                        set(section.water, index);
+                    } else if (blockState != null && blockState.isOf(Blocks.LAVA)) {
+                        set(section.lava, index);
+                    }
+                }
+            }
+        }
+
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    int column = z << 4 | x;
+                    if (!clipColumn[y << 8 | column] && clipColumn[(y + 1) << 8 | column] && clipColumn[(y + 2) << 8 | column]) {
+                        set(section.standable, index(x, y, z));
+                    }
+                }
+            }
+        }
+        return section;
+    }
+
+    /**
+     * Combines the fingerprints of the section and of the sections below and above it (the passability of
+     * the bottom and top rows depends on them), unlike the version stamps of the WorldChangeTracker it
+     * doesn't depend on the session, so it tells whether saved passability is still valid.
+     */
+    public static long fingerprint(WorldView view, int sectionX, int sectionY, int sectionZ) {
+        long hash = 0xCBF29CE484222325L;
+        for (int dy = -1; dy <= 1; dy++) {
+            hash = (hash ^ view.getSectionFingerprint(sectionX, sectionY + dy, sectionZ)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    public void writeTo(LongBuffer out) {
+        out.put(solid).put(clipThrough).put(water).put(lava).put(standable);
+    }
+
+    /**
+     * Reads passability written by {@link #writeTo(LongBuffer)}.
+     */
+    public static SectionPassability readFrom(LongBuffer in, long version) {
+        SectionPassability section = new SectionPassability(version);
+        in.get(section.solid).get(section.clipThrough).get(section.water).get(section.lava).get(section.standable);
+        return section;
+    }
+
+    /**
+     * @return true if any block of the section is solid, sections of air are cheap to derive again
+     */
+    public boolean hasSolid() {
+        for (long word : solid) {
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the player can stand anywhere in the section, most sections of air or stone have no such cell
+     */
+    public boolean hasStandable() {
+        for (long word : standable) {
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isSolid(int x, int y, int z) {
+        return get(solid, index(x, y, z));
+    }
+
+    public boolean canClipInto(int x, int y, int z) {
+        return get(clipThrough, index(x, y, z));
+    }
+
+    public boolean isWater(int x, int y, int z) {
+        return get(water, index(x, y, z));
+    }
+
+    public boolean isLava(int x, int y, int z) {
+        return get(lava, index(x, y, z));
+    }
+
+    public boolean isStandable(int x, int y, int z) {
+        return get(standable, index(x, y, z));
+    }
+}
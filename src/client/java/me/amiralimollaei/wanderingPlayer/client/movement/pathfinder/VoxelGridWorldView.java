@@ -0,0 +1,180 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.fluid.Fluids;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+A dense box of block states that only exists in memory, used to run the pathfinder on
+generated or captured terrain without a running client, blocks outside the box read as
+not loaded.
+
+every block is a short index into a palette of block states, so a 256x256x256 grid takes 32MB.
+the grid must not be changed while a search is reading it, changes are reported to the
+tracker (if there is one) so passability caches drop the changed sections.
+ */
+public class VoxelGridWorldView implements WorldView {
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final short[] cells;
+    private final List<BlockState> palette = new ArrayList<>();
+    private final Map<BlockState, Integer> paletteIndices = new IdentityHashMap<>();
+    private final @Nullable WorldChangeTracker tracker;
+
+    /**
+     * Creates a grid filled with air.
+     *
+     * @param bounds  the blocks covered by the grid
+     * @param tracker the tracker to report changes to, may be null if nothing caches this grid
+     */
+    public VoxelGridWorldView(BlockBox bounds, @Nullable WorldChangeTracker tracker) {
+        this.minX = bounds.getMinX();
+        this.minY = bounds.getMinY();
+        this.minZ = bounds.getMinZ();
+        this.sizeX = bounds.getBlockCountX();
+        this.sizeY = bounds.getBlockCountY();
+        this.sizeZ = bounds.getBlockCountZ();
+        this.cells = new short[sizeX * sizeY * sizeZ];
+        this.tracker = tracker;
+        paletteIndexOf(Blocks.AIR.getDefaultState()); // index 0 is air, so a new grid is empty
+    }
+
+    /**
+     * Copies a box of blocks from another view, blocks that aren't loaded in the source become air.
+     *
+     * @param source the view to copy from, e.g. the snapshot of a live world
+     * @param bounds the blocks to copy
+     * @return the copy
+     */
+    public static VoxelGridWorldView capture(WorldView source, BlockBox bounds) {
+        VoxelGridWorldView grid = new VoxelGridWorldView(bounds, null);
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (int y = bounds.getMinY(); y <= bounds.getMaxY(); y++) {
+            for (int z = bounds.getMinZ(); z <= bounds.getMaxZ(); z++) {
+                for (int x = bounds.getMinX(); x <= bounds.getMaxX(); x++) {
+                    BlockState blockState = source.getBlockStateOrNull(pos.set(x, y, z));
+                    if (blockState != null) {
+                        grid.setBlockState(x, y, z, blockState);
+                    }
+                }
+            }
+        }
+        return grid;
+    }
+
+    private int paletteIndexOf(BlockState blockState) {
+        Integer index = paletteIndices.get(blockState);
+        if (index == null) {
+            index = palette.size();
+            if (index > Short.MAX_VALUE) {
+                throw new IllegalStateException("too many different block states in the grid");
+            }
+            palette.add(blockState);
+            paletteIndices.put(blockState, index);
+        }
+        return index;
+    }
+
+    private boolean contains(int x, int y, int z) {
+        return x >= minX && x < minX + sizeX &&
+                y >= minY && y < minY + sizeY &&
+                z >= minZ && z < minZ + sizeZ;
+    }
+
+    private int cellIndex(int x, int y, int z) {
+        return ((y - minY) * sizeZ + (z - minZ)) * sizeX + (x - minX);
+    }
+
+    /**
+     * Sets the block state at the given position, positions outside the grid are ignored.
+     */
+    public void setBlockState(int x, int y, int z, BlockState blockState) {
+        if (!contains(x, y, z)) {
+            return;
+        }
+        cells[cellIndex(x, y, z)] = (short) paletteIndexOf(blockState);
+        if (tracker != null) {
+            tracker.onBlockChanged(new BlockPos(x, y, z));
+        }
+    }
+
+    /**
+     * Fills a box with a block state, the box is clipped to the grid.
+     */
+    public void fill(BlockBox box, BlockState blockState) {
+        for (int y = box.getMinY(); y <= box.getMaxY(); y++) {
+            for (int z = box.getMinZ(); z <= box.getMaxZ(); z++) {
+                for (int x = box.getMinX(); x <= box.getMaxX(); x++) {
+                    setBlockState(x, y, z, blockState);
+                }
+            }
+        }
+    }
+
+    @Override
+    public @Nullable BlockState getBlockStateOrNull(int x, int y, int z) {
+        if (!contains(x, y, z)) {
+            return null;
+        }
+        return palette.get(cells[cellIndex(x, y, z)]);
+    }
+
+    @Override
+    public BlockState getBlockState(BlockPos pos) {
+        BlockState blockState = getBlockStateOrNull(pos);
+        return blockState == null ? Blocks.VOID_AIR.getDefaultState() : blockState;
+    }
+
+    @Override
+    public FluidState getFluidState(BlockPos pos) {
+        BlockState blockState = getBlockStateOrNull(pos);
+        return blockState == null ? Fluids.EMPTY.getDefaultState() : blockState.getFluidState();
+    }
+
+    @Override
+    public @Nullable BlockEntity getBlockEntity(BlockPos pos) {
+        return null;
+    }
+
+    @Override
+    public BlockBox getBounds() {
+        return new BlockBox(minX, minY, minZ, minX + sizeX - 1, minY + sizeY - 1, minZ + sizeZ - 1);
+    }
+
+    @Override
+    public long getSectionVersion(int sectionX, int sectionY, int sectionZ) {
+        int x = ChunkSectionPos.getBlockCoord(sectionX);
+        int y = ChunkSectionPos.getBlockCoord(sectionY);
+        int z = ChunkSectionPos.getBlockCoord(sectionZ);
+        // sections that only partly overlap the grid are loaded, their blocks outside the grid read as null
+        if (x + 16 <= minX || x >= minX + sizeX || y + 16 <= minY || y >= minY + sizeY || z + 16 <= minZ || z >= minZ + sizeZ) {
+            return UNLOADED_SECTION;
+        }
+        return tracker == null ? 0 : tracker.getVersion(sectionX, sectionY, sectionZ);
+    }
+
+    @Override
+    public int getHeight() {
+        return sizeY;
+    }
+
+    @Override
+    public int getBottomY() {
+        return minY;
+    }
+}
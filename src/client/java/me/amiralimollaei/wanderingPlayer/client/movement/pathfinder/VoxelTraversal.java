@@ -0,0 +1,106 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.util.math.MathHelper;
+
+/*
+Walks the blocks a line segment passes through in order, using the grid traversal of Amanatides
+and Woo ("A Fast Voxel Traversal Algorithm for Ray Tracing"), it does constant work per block
+and doesn't allocate.
+
+when the segment passes exactly through an edge or a corner between blocks, the blocks that only
+touch the segment there are visited as well, so a line between two diagonal neighbors is blocked
+by either of the blocks on its sides (the player is too wide to squeeze between them).
+ */
+public final class VoxelTraversal {
+    public interface CellVisitor {
+        /**
+         * @return true to continue the traversal, false to stop it
+         */
+        boolean visit(int x, int y, int z);
+    }
+
+    // crossings closer than this (in units of the segment length) happen at the same time
+    private static final double EPSILON = 1e-9;
+
+    private VoxelTraversal() {
+    }
+
+    /**
+     * Visits every block from the start of the segment to its end, stopping at the first block the
+     * visitor rejects.
+     *
+     * @return true if the visitor accepted every block
+     */
+    public static boolean traverse(double startX, double startY, double startZ,
+                                   double endX, double endY, double endZ,
+                                   CellVisitor visitor) {
+        int x = MathHelper.floor(startX);
+        int y = MathHelper.floor(startY);
+        int z = MathHelper.floor(startZ);
+        int lastX = MathHelper.floor(endX);
+        int lastY = MathHelper.floor(endY);
+        int lastZ = MathHelper.floor(endZ);
+
+        double deltaX = endX - startX;
+        double deltaY = endY - startY;
+        double deltaZ = endZ - startZ;
+        int stepX = (int) Math.signum(deltaX);
+        int stepY = (int) Math.signum(deltaY);
+        int stepZ = (int) Math.signum(deltaZ);
+        // how far along the segment (0 to 1) one block is on each axis
+        double tDeltaX = stepX == 0 ? Double.POSITIVE_INFINITY : 1.0 / Math.abs(deltaX);
+        double tDeltaY = stepY == 0 ? Double.POSITIVE_INFINITY : 1.0 / Math.abs(deltaY);
+        double tDeltaZ = stepZ == 0 ? Double.POSITIVE_INFINITY : 1.0 / Math.abs(deltaZ);
+        // how far along the segment the next block border is on each axis
+        double tMaxX = stepX == 0 ? Double.POSITIVE_INFINITY : (stepX > 0 ? x + 1 - startX : startX - x) * tDeltaX;
+        double tMaxY = stepY == 0 ? Double.POSITIVE_INFINITY : (stepY > 0 ? y + 1 - startY : startY - y) * tDeltaY;
+        double tMaxZ = stepZ == 0 ? Double.POSITIVE_INFINITY : (stepZ > 0 ? z + 1 - startZ : startZ - z) * tDeltaZ;
+
+        if (!visitor.visit(x, y, z)) {
+            return false;
+        }
+        int remaining = Math.abs(lastX - x) + Math.abs(lastY - y) + Math.abs(lastZ - z);
+        while (remaining > 0) {
+            double t = Math.min(tMaxX, Math.min(tMaxY, tMaxZ));
+            if (t > 1) {
+                break;
+            }
+            boolean crossesX = tMaxX - t < EPSILON;
+            boolean crossesY = tMaxY - t < EPSILON;
+            boolean crossesZ = tMaxZ - t < EPSILON;
+
+            if ((crossesX ? 1 : 0) + (crossesY ? 1 : 0) + (crossesZ ? 1 : 0) > 1) {
+                // the segment goes through an edge or a corner, visit the blocks that touch it there
+                if (crossesX && !visitor.visit(x + stepX, y, z)) {
+                    return false;
+                }
+                if (crossesY && !visitor.visit(x, y + stepY, z)) {
+                    return false;
+                }
+                if (crossesZ && !visitor.visit(x, y, z + stepZ)) {
+                    return false;
+                }
+            }
+
+            if (crossesX) {
+                x += stepX;
+                tMaxX += tDeltaX;
+                remaining--;
+            }
+            if (crossesY) {
+                y += stepY;
+                tMaxY += tDeltaY;
+                remaining--;
+            }
+            if (crossesZ) {
+                z += stepZ;
+                tMaxZ += tDeltaZ;
+                remaining--;
+            }
+            if (!visitor.visit(x, y, z)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,123 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import me.amiralimollaei.wanderingPlayer.client.event.ClientBlockUpdateCallback;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Keeps track of which chunk sections of the client world changed, every section gets a
+version stamp that is bumped whenever a block in it changes or its chunk is (un)loaded,
+so derived navigation data can tell whether it's stale.
+
+versions are only kept for loaded chunks, the versions of a chunk are dropped when it unloads
+(after its sections were reported as changed) and it gets fresh ones when it loads again, so a
+long session doesn't pile up versions of every chunk it ever saw. versions come from a single
+counter and are never reused.
+
+listeners are notified on the client thread.
+ */
+public class WorldChangeTracker {
+    public interface Listener {
+        // a section changed, all data derived from it is stale
+        void onSectionChanged(int sectionX, int sectionY, int sectionZ);
+
+        // the client joined or left a world, all data is stale
+        default void onReset() {}
+    }
+
+    private final AtomicLong versionCounter = new AtomicLong();
+    private final ConcurrentHashMap<Long, Long> sectionVersions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> chunkVersions = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void register() {
+        ClientBlockUpdateCallback.EVENT.register((world, pos, oldState, newState) -> onBlockChanged(pos));
+        ClientChunkEvents.CHUNK_LOAD.register((world, chunk) -> onChunkChanged(world, chunk.getPos().x, chunk.getPos().z));
+        ClientChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> onChunkUnloaded(world, chunk.getPos().x, chunk.getPos().z));
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> reset());
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> reset());
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the version stamp of a section, 0 if the section never changed or its chunk isn't loaded
+     */
+    public long getVersion(int sectionX, int sectionY, int sectionZ) {
+        return sectionVersions.getOrDefault(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ), 0L);
+    }
+
+    /**
+     * @return the version stamp of a chunk column, bumped whenever any of its sections changes
+     */
+    public long getChunkVersion(int chunkX, int chunkZ) {
+        return chunkVersions.getOrDefault(ChunkPos.toLong(chunkX, chunkZ), 0L);
+    }
+
+    public void onBlockChanged(BlockPos pos) {
+        int sectionX = ChunkSectionPos.getSectionCoord(pos.getX());
+        int sectionY = ChunkSectionPos.getSectionCoord(pos.getY());
+        int sectionZ = ChunkSectionPos.getSectionCoord(pos.getZ());
+        markChanged(sectionX, sectionY, sectionZ);
+        // passability of the cells next to the section border depends on the neighboring section
+        int localY = pos.getY() & 15;
+        if (localY == 0) {
+            markChanged(sectionX, sectionY - 1, sectionZ);
+        } else if (localY == 15) {
+            markChanged(sectionX, sectionY + 1, sectionZ);
+        }
+    }
+
+    public void onChunkChanged(World world, int chunkX, int chunkZ) {
+        for (int sectionY = world.getBottomSectionCoord(); sectionY < world.getTopSectionCoord(); sectionY++) {
+            markChanged(chunkX, sectionY, chunkZ);
+        }
+    }
+
+    public void onChunkUnloaded(World world, int chunkX, int chunkZ) {
+        onChunkChanged(world, chunkX, chunkZ);
+        for (int sectionY = world.getBottomSectionCoord(); sectionY < world.getTopSectionCoord(); sectionY++) {
+            sectionVersions.remove(ChunkSectionPos.asLong(chunkX, sectionY, chunkZ));
+        }
+        chunkVersions.remove(ChunkPos.toLong(chunkX, chunkZ));
+    }
+
+    /**
+     * @return how many sections have a version stamp
+     */
+    public int size() {
+        return sectionVersions.size();
+    }
+
+    private void markChanged(int sectionX, int sectionY, int sectionZ) {
+        long version = versionCounter.incrementAndGet();
+        sectionVersions.put(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ), version);
+        chunkVersions.put(ChunkPos.toLong(sectionX, sectionZ), version);
+        for (Listener listener : listeners) {
+            listener.onSectionChanged(sectionX, sectionY, sectionZ);
+        }
+    }
+
+    public void reset() {
+        sectionVersions.clear();
+        chunkVersions.clear();
+        for (Listener listener : listeners) {
+            listener.onReset();
+        }
+    }
+}
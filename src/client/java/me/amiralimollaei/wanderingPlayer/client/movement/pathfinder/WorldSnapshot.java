@@ -0,0 +1,235 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import me.amiralimollaei.wanderingPlayer.client.WanderingPlayerClient;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.fluid.Fluids;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.WorldChunk;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+A read-only view of the world made of copied chunk sections, used by the pathfinder
+so it can read blocks from a background thread without touching the live world.
+
+sections around the start and the goal are copied up front on the client thread,
+any other section is copied on demand (again on the client thread) the first time
+the search touches it, reads of already copied sections never lock.
+
+chunks that aren't loaded are remembered with the version of their column, they're copied again
+once the WorldChangeTracker reports that column as changed (e.g. loaded). a chunk the client
+thread didn't copy in time isn't asked for again for a little while, so a search probing it over
+and over doesn't wait every time.
+
+this is the WorldView of the live world.
+ */
+public class WorldSnapshot implements WorldView {
+    // how long a background search waits for the client thread to copy a missing chunk
+    public final long FETCH_TIMEOUT_MS = 250;
+    // how long a chunk that wasn't copied in time is treated as unloaded before it's asked for again
+    public final long FETCH_RETRY_MS = 1000;
+
+    private final MinecraftClient client;
+    private final World world;
+    private final int bottomY;
+    private final int height;
+    private final int bottomSectionY;
+    private final int topSectionY;
+    private final ConcurrentHashMap<Long, ChunkSectionSnapshot> sections = new ConcurrentHashMap<>();
+    // chunk version of the columns that weren't loaded when they were copied, by packed chunk position
+    private final ConcurrentHashMap<Long, Long> unloadedChunks = new ConcurrentHashMap<>();
+    // when the columns that timed out can be asked for again (System#nanoTime), by packed chunk position
+    private final ConcurrentHashMap<Long, Long> failedFetches = new ConcurrentHashMap<>();
+    private final @Nullable WorldChangeTracker tracker;
+
+    public WorldSnapshot(MinecraftClient client, World world, @Nullable WorldChangeTracker tracker) {
+        this.client = client;
+        this.world = world;
+        this.tracker = tracker;
+        this.bottomY = world.getBottomY();
+        this.height = world.getHeight();
+        this.bottomSectionY = world.getBottomSectionCoord();
+        this.topSectionY = world.getTopSectionCoord() - 1;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Copies all chunks in a square around the given position, must be called on the client thread.
+     *
+     * @param pos         the center of the square
+     * @param chunkRadius the radius of the square in chunks
+     */
+    public void snapshotAround(BlockPos pos, int chunkRadius) {
+        int centerX = ChunkSectionPos.getSectionCoord(pos.getX());
+        int centerZ = ChunkSectionPos.getSectionCoord(pos.getZ());
+        for (int chunkX = centerX - chunkRadius; chunkX <= centerX + chunkRadius; chunkX++) {
+            for (int chunkZ = centerZ - chunkRadius; chunkZ <= centerZ + chunkRadius; chunkZ++) {
+                snapshotChunk(chunkX, chunkZ);
+            }
+        }
+    }
+
+    @Override
+    public void prefetchAround(BlockPos pos, int chunkRadius) {
+        snapshotAround(pos, chunkRadius);
+    }
+
+    // copies every section of a chunk column, must be called on the client thread
+    private void snapshotChunk(int chunkX, int chunkZ) {
+        long chunkKey = ChunkPos.toLong(chunkX, chunkZ);
+        WorldChunk chunk = world.getChunkManager().getWorldChunk(chunkX, chunkZ, false);
+        if (chunk == null) {
+            unloadedChunks.put(chunkKey, getChunkVersion(chunkX, chunkZ));
+            return;
+        }
+        unloadedChunks.remove(chunkKey);
+        for (int sectionY = bottomSectionY; sectionY <= topSectionY; sectionY++) {
+            long version = tracker == null ? 0 : tracker.getVersion(chunkX, sectionY, chunkZ);
+            ChunkSectionSnapshot snapshot = ChunkSectionSnapshot.of(chunk.getSection(world.sectionCoordToIndex(sectionY)), version);
+            sections.put(ChunkSectionPos.asLong(chunkX, sectionY, chunkZ), snapshot);
+        }
+    }
+
+    private long getChunkVersion(int chunkX, int chunkZ) {
+        return tracker == null ? 0 : tracker.getChunkVersion(chunkX, chunkZ);
+    }
+
+    private ChunkSectionSnapshot fetchSection(int sectionX, int sectionY, int sectionZ) {
+        long key = ChunkSectionPos.asLong(sectionX, sectionY, sectionZ);
+        long chunkKey = ChunkPos.toLong(sectionX, sectionZ);
+        if (client.isOnThread()) {
+            snapshotChunk(sectionX, sectionZ);
+        } else {
+            Long retryAt = failedFetches.get(chunkKey);
+            if (retryAt != null && System.nanoTime() - retryAt < 0) {
+                return ChunkSectionSnapshot.UNLOADED;
+            }
+            try {
+                client.submit(() -> snapshotChunk(sectionX, sectionZ)).get(FETCH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                failedFetches.remove(chunkKey);
+            } catch (Exception e) {
+                WanderingPlayerClient.getLogger().debug("failed to copy chunk [{}, {}]", sectionX, sectionZ, e);
+                failedFetches.put(chunkKey, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FETCH_RETRY_MS));
+                return ChunkSectionSnapshot.UNLOADED;
+            }
+        }
+        return sections.getOrDefault(key, ChunkSectionSnapshot.UNLOADED);
+    }
+
+    public ChunkSectionSnapshot getSection(int sectionX, int sectionY, int sectionZ) {
+        ChunkSectionSnapshot section = sections.get(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+        if (section != null) {
+            return section;
+        }
+        // the column wasn't loaded when it was copied, it's only copied again once it changed
+        Long unloadedVersion = unloadedChunks.get(ChunkPos.toLong(sectionX, sectionZ));
+        if (unloadedVersion != null && unloadedVersion == getChunkVersion(sectionX, sectionZ)) {
+            return ChunkSectionSnapshot.UNLOADED;
+        }
+        return fetchSection(sectionX, sectionY, sectionZ);
+    }
+
+    @Override
+    public long getSectionVersion(int sectionX, int sectionY, int sectionZ) {
+        ChunkSectionSnapshot section = getSection(sectionX, sectionY, sectionZ);
+        return section.isLoaded() ? section.getVersion() : UNLOADED_SECTION;
+    }
+
+    // hashes the copied palette and storage, much cheaper than reading the blocks one by one
+    @Override
+    public long getSectionFingerprint(int sectionX, int sectionY, int sectionZ) {
+        if (sectionY < bottomSectionY || sectionY > topSectionY) {
+            return ChunkSectionSnapshot.EMPTY.getContentHash();
+        }
+        return getSection(sectionX, sectionY, sectionZ).getContentHash();
+    }
+
+    /**
+     * Drops the copy of a section, it is copied again the next time it's read.
+     */
+    @Override
+    public void invalidateSection(int sectionX, int sectionY, int sectionZ) {
+        sections.remove(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+    }
+
+    /**
+     * Drops the copies of all sections of a chunk column, they are copied again the next time they're read.
+     */
+    public void invalidateChunk(int chunkX, int chunkZ) {
+        unloadedChunks.remove(ChunkPos.toLong(chunkX, chunkZ));
+        failedFetches.remove(ChunkPos.toLong(chunkX, chunkZ));
+        for (int sectionY = bottomSectionY; sectionY <= topSectionY; sectionY++) {
+            invalidateSection(chunkX, sectionY, chunkZ);
+        }
+    }
+
+    /**
+     * @return the block state at the given position, or null if the chunk is not loaded
+     */
+    @Override
+    public @Nullable BlockState getBlockStateOrNull(int x, int y, int z) {
+        int sectionY = ChunkSectionPos.getSectionCoord(y);
+        if (sectionY < bottomSectionY || sectionY > topSectionY) {
+            return Blocks.AIR.getDefaultState();
+        }
+        ChunkSectionSnapshot section = getSection(
+                ChunkSectionPos.getSectionCoord(x),
+                sectionY,
+                ChunkSectionPos.getSectionCoord(z)
+        );
+        return section.getBlockState(x & 15, y & 15, z & 15);
+    }
+
+    @Override
+    public @Nullable BlockState getBlockStateOrNull(BlockPos pos) {
+        return getBlockStateOrNull(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    @Override
+    public BlockState getBlockState(BlockPos pos) {
+        BlockState blockState = getBlockStateOrNull(pos);
+        return blockState == null ? Blocks.VOID_AIR.getDefaultState() : blockState;
+    }
+
+    @Override
+    public FluidState getFluidState(BlockPos pos) {
+        BlockState blockState = getBlockStateOrNull(pos);
+        return blockState == null ? Fluids.EMPTY.getDefaultState() : blockState.getFluidState();
+    }
+
+    // block entities are not part of the snapshot, the few blocks that need them for their
+    // collision shape (e.g. shulker boxes) fall back to their default shape.
+    @Override
+    public @Nullable BlockEntity getBlockEntity(BlockPos pos) {
+        return null;
+    }
+
+    // the live world has no horizontal bounds
+    @Override
+    public @Nullable BlockBox getBounds() {
+        return null;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getBottomY() {
+        return bottomY;
+    }
+}
@@ -0,0 +1,96 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.BlockView;
+import org.jetbrains.annotations.Nullable;
+
+/*
+The blocks the pathfinder searches through, every block read of a search goes through
+this interface so the same search runs on the live world (through a WorldSnapshot) or on
+terrain that only exists in memory (a VoxelGridWorldView).
+
+implementations must be safe to read from the search thread.
+ */
+public interface WorldView extends BlockView {
+    // the version of sections that aren't loaded
+    long UNLOADED_SECTION = -1;
+
+    /**
+     * @return the block state at the given position, or null if the block is not loaded
+     */
+    @Nullable BlockState getBlockStateOrNull(int x, int y, int z);
+
+    default @Nullable BlockState getBlockStateOrNull(BlockPos pos) {
+        return getBlockStateOrNull(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    /**
+     * @return the fluid state at the given position, or null if the block is not loaded
+     */
+    default @Nullable FluidState getFluidStateOrNull(BlockPos pos) {
+        BlockState blockState = getBlockStateOrNull(pos);
+        return blockState == null ? null : blockState.getFluidState();
+    }
+
+    /**
+     * @return true if the player can move through the block at the given position, unloaded blocks are never empty
+     */
+    default boolean isCollisionEmpty(BlockPos pos) {
+        return isCollisionEmpty(getBlockStateOrNull(pos), pos);
+    }
+
+    /**
+     * @return true if the player can move through the given block state at the given position
+     */
+    default boolean isCollisionEmpty(@Nullable BlockState blockState, BlockPos pos) {
+        if (blockState == null) {
+            return false;
+        }
+        return blockState.isAir() || blockState.getCollisionShape(this, pos).isEmpty();
+    }
+
+    /**
+     * @return the horizontal and vertical bounds of the view, or null if it's not bounded horizontally
+     */
+    @Nullable BlockBox getBounds();
+
+    /**
+     * @return the version stamp of a section, changes whenever a block in the section changes,
+     *         or {@link #UNLOADED_SECTION} if the section is not loaded
+     */
+    long getSectionVersion(int sectionX, int sectionY, int sectionZ);
+
+    /**
+     * @return a hash of the blocks of a section that doesn't depend on the session, used to tell whether
+     *         passability saved in an earlier session is still valid
+     */
+    default long getSectionFingerprint(int sectionX, int sectionY, int sectionZ) {
+        int minX = sectionX << 4, minY = sectionY << 4, minZ = sectionZ << 4;
+        long hash = 0xCBF29CE484222325L;
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    BlockState blockState = getBlockStateOrNull(minX + x, minY + y, minZ + z);
+                    hash = (hash ^ (blockState == null ? -1 : Block.getRawIdFromState(blockState))) * 0x100000001B3L;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Makes sure the blocks around a position can be read cheaply, must be called on the client thread.
+     */
+    default void prefetchAround(BlockPos pos, int chunkRadius) {
+    }
+
+    /**
+     * Drops anything the view remembers about a section, called after blocks in it changed.
+     */
+    default void invalidateSection(int sectionX, int sectionY, int sectionZ) {
+    }
+}
@@ -0,0 +1,61 @@
+package me.amiralimollaei.wanderingPlayer.client.movement;
+
+import me.amiralimollaei.wanderingPlayer.client.movement.pathfinder.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+Measures turning a simplified path into the positions the player follows, preparing a path only
+sets up the trajectory, generating it measures interpolating the whole path.
+
+these only measure what the trajectory costs to build, not how fast the player gets along it,
+ticks per kilometre need a client walking a real world and aren't measured here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PathExecutorBenchmark {
+    @Param({"PLAINS", "HILLS", "MAZE"})
+    public SyntheticTerrain.Type terrainType;
+
+    private PathExecutor executor;
+    private CompactPath path;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticTerrain.bootstrap();
+        SyntheticTerrain terrain = new SyntheticTerrain(terrainType, PathfinderBenchmark.SEED);
+        PathFinderContext context = new PathFinderContext(terrain.build(), new PassabilityCache(new WorldChangeTracker()));
+
+        PathNode start = new PathNode(terrain.getStart(), PathManoeuvre.WALK);
+        AStarPathfinder pathfinder = new AStarPathfinder(start, new PathFinderGoal(terrain.getGoal()), context);
+        pathfinder.setBudget(SearchBudget.UNLIMITED);
+        List<PathNode> rawPath = pathfinder.search();
+        if (rawPath == null) {
+            throw new IllegalStateException("no path on " + terrainType + " terrain");
+        }
+        path = CompactPath.encode(context.simplifyPath(rawPath));
+        executor = new PathExecutor(context);
+    }
+
+    @Benchmark
+    public void preparePath(Blackhole blackhole) {
+        executor.clear();
+        PathExecutor.path = path;
+        executor.preparePath();
+        blackhole.consume(executor.getTrajectory());
+    }
+
+    @Benchmark
+    public void generateTrajectory(Blackhole blackhole) {
+        executor.clear();
+        PathExecutor.path = path;
+        executor.preparePath();
+        PathTrajectory trajectory = executor.getTrajectory();
+        trajectory.ensureDistance(Double.POSITIVE_INFINITY);
+        blackhole.consume(trajectory.getPoints());
+    }
+}
@@ -0,0 +1,60 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+Measures the per node work of the search (neighbor generation) and the post processing
+of a found path, both run on the nodes of a path found once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PathFinderContextBenchmark {
+    @Param({"PLAINS", "HILLS", "MAZE"})
+    public SyntheticTerrain.Type terrainType;
+
+    private PathFinderContext context;
+    private List<PathNode> path;
+    private final NeighborBuffer neighbors = new NeighborBuffer();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticTerrain.bootstrap();
+        SyntheticTerrain terrain = new SyntheticTerrain(terrainType, PathfinderBenchmark.SEED);
+        context = new PathFinderContext(terrain.build(), new PassabilityCache(new WorldChangeTracker()));
+
+        PathNode start = new PathNode(terrain.getStart(), PathManoeuvre.WALK);
+        AStarPathfinder pathfinder = new AStarPathfinder(start, new PathFinderGoal(terrain.getGoal()), context);
+        pathfinder.setBudget(SearchBudget.UNLIMITED);
+        path = pathfinder.search();
+        if (path == null) {
+            throw new IllegalStateException("no path on " + terrainType + " terrain");
+        }
+    }
+
+    @Benchmark
+    public void getNeighborsOf(Blackhole blackhole) {
+        for (PathNode node : path) {
+            blackhole.consume(context.getNeighborsOf(node));
+        }
+    }
+
+    @Benchmark
+    public int collectNeighbors() {
+        int total = 0;
+        for (PathNode node : path) {
+            total += context.collectNeighbors(node, neighbors);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public List<PathNode> simplifyPath() {
+        return context.simplifyPath(new ArrayList<>(path));
+    }
+}
@@ -0,0 +1,87 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+Measures full searches from one corner of a synthetic terrain to the other, the
+passability cache is shared between invocations like it is in game.
+
+next to the time, every search reports the nodes it expanded, expansions / searches is the
+number of expansions of one search, which is what Jump Point Search saves on PLAINS.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PathfinderBenchmark {
+    public static final long SEED = 0x5EED;
+
+    @Param({"PLAINS", "HILLS", "MAZE"})
+    public SyntheticTerrain.Type terrainType;
+
+    private SyntheticTerrain terrain;
+    private VoxelGridWorldView worldView;
+    private PassabilityCache passabilityCache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticTerrain.bootstrap();
+        terrain = new SyntheticTerrain(terrainType, SEED);
+        worldView = terrain.build();
+        passabilityCache = new PassabilityCache(new WorldChangeTracker());
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Expansions {
+        public long expansions;
+        public long searches;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            expansions = 0;
+            searches = 0;
+        }
+    }
+
+    private List<PathNode> run(AStarPathfinderBase pathfinder, Expansions counters) {
+        pathfinder.setBudget(SearchBudget.UNLIMITED);
+        List<PathNode> path = pathfinder.search();
+        if (path == null || pathfinder.isPartial()) {
+            throw new IllegalStateException("no path on " + terrainType + " terrain");
+        }
+        counters.expansions += pathfinder.getExpansions();
+        counters.searches++;
+        return path;
+    }
+
+    @Benchmark
+    public List<PathNode> aStarSearch(Expansions counters) {
+        PathFinderContext context = new PathFinderContext(worldView, passabilityCache);
+        PathNode start = new PathNode(terrain.getStart(), PathManoeuvre.WALK);
+        return run(new AStarPathfinder(start, new PathFinderGoal(terrain.getGoal()), context), counters);
+    }
+
+    @Benchmark
+    public List<PathNode> lazyAStarSearch(Expansions counters) {
+        PathFinderContext context = new PathFinderContext(worldView, passabilityCache);
+        PathNode start = new PathNode(terrain.getStart(), PathManoeuvre.WALK);
+        return run(new LazyAStarPathfinder(start, new PathFinderGoal(terrain.getGoal()), context), counters);
+    }
+
+    @Benchmark
+    public List<PathNode> lazyThetaStarSearch(Expansions counters) {
+        PathFinderContext context = new PathFinderContext(worldView, passabilityCache);
+        PathNode start = new PathNode(terrain.getStart(), PathManoeuvre.WALK);
+        return run(new LazyThetaStarPathfinder(start, new PathFinderGoal(terrain.getGoal()), context), counters);
+    }
+
+    @Benchmark
+    public List<PathNode> jumpPointSearch(Expansions counters) {
+        PathFinderContext context = new PathFinderContext(worldView, passabilityCache);
+        PathNode start = new PathNode(terrain.getStart(), PathManoeuvre.WALK);
+        return run(new JumpPointPathfinder(start, new PathFinderGoal(terrain.getGoal()), context), counters);
+    }
+}
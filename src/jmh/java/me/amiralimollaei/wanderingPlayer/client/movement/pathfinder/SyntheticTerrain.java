@@ -0,0 +1,237 @@
+package me.amiralimollaei.wanderingPlayer.client.movement.pathfinder;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+/*
+Generates reproducible terrain for the benchmarks, the same type and seed always produce
+the same blocks, everything outside the generated square reads as unloaded.
+
+the start is always near the north-west corner of the terrain and the goal near the
+south-east corner, both are standing positions on the surface.
+ */
+public class SyntheticTerrain {
+    public enum Type {
+        // flat grass with scattered pillars and ponds
+        PLAINS,
+        // rolling hills, most moves change the height
+        HILLS,
+        // a maze with walls the player can't jump over, the worst case for a greedy heuristic
+        MAZE
+    }
+
+    public static final int SIZE = 128;
+    public static final int BOTTOM_Y = 0;
+    public static final int HEIGHT = 128;
+    public static final int SURFACE_Y = 64;
+    // maze cells are 2x2 corridors separated by 1 block thick walls
+    public static final int MAZE_CELL_SIZE = 3;
+
+    private static boolean bootstrapped = false;
+
+    public final Type type;
+    public final long seed;
+    private final int[] surface = new int[SIZE * SIZE];
+    private final BlockState[][] columns = new BlockState[SIZE * SIZE][];
+
+    public SyntheticTerrain(Type type, long seed) {
+        this.type = type;
+        this.seed = seed;
+        generate();
+    }
+
+    /**
+     * Loads the block and fluid registries, must be called before any terrain is built.
+     */
+    public static synchronized void bootstrap() {
+        if (bootstrapped) {
+            return;
+        }
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        bootstrapped = true;
+    }
+
+    /**
+     * @return the position the player stands at when the search starts
+     */
+    public BlockPos getStart() {
+        return new BlockPos(1, getSurfaceAt(1, 1) + 1, 1);
+    }
+
+    /**
+     * @return the position the player should end up standing at
+     */
+    public BlockPos getGoal() {
+        BlockPos column = getGoalColumn();
+        return column.up(getSurfaceAt(column.getX(), column.getZ()) + 1);
+    }
+
+    /**
+     * @return the y coordinate of the highest ground block of a column
+     */
+    public int getSurfaceAt(int x, int z) {
+        return surface[x + z * SIZE];
+    }
+
+    /**
+     * Copies the terrain into an in-memory world view.
+     */
+    public VoxelGridWorldView build() {
+        VoxelGridWorldView grid = new VoxelGridWorldView(
+                new BlockBox(0, BOTTOM_Y, 0, SIZE - 1, BOTTOM_Y + HEIGHT - 1, SIZE - 1),
+                null
+        );
+        for (int x = 0; x < SIZE; x++) {
+            for (int z = 0; z < SIZE; z++) {
+                BlockState[] column = columns[x + z * SIZE];
+                for (int y = 0; y < column.length; y++) {
+                    if (column[y] != null) {
+                        grid.setBlockState(x, BOTTOM_Y + y, z, column[y]);
+                    }
+                }
+            }
+        }
+        return grid;
+    }
+
+    private void generate() {
+        Random random = new Random(seed);
+        switch (type) {
+            case PLAINS -> generatePlains(random);
+            case HILLS -> generateHills(random);
+            case MAZE -> generateMaze(random);
+        }
+    }
+
+    // fills a column with stone, dirt and grass up to the given height, returns the column
+    private BlockState[] fillColumn(int x, int z, int height, int extraHeight) {
+        BlockState[] column = new BlockState[height - BOTTOM_Y + 1 + extraHeight];
+        for (int y = 0; y <= height - BOTTOM_Y; y++) {
+            int depth = height - BOTTOM_Y - y;
+            column[y] = depth == 0 ? Blocks.GRASS_BLOCK.getDefaultState() :
+                    depth < 4 ? Blocks.DIRT.getDefaultState() :
+                    Blocks.STONE.getDefaultState();
+        }
+        columns[x + z * SIZE] = column;
+        surface[x + z * SIZE] = height;
+        return column;
+    }
+
+    private boolean isNearStartOrGoal(int x, int z) {
+        BlockPos goal = getGoalColumn();
+        return (Math.abs(x - 1) <= 3 && Math.abs(z - 1) <= 3) ||
+                (Math.abs(x - goal.getX()) <= 3 && Math.abs(z - goal.getZ()) <= 3);
+    }
+
+    // the goal column without looking up the surface, which may not be generated yet,
+    // it's inside the last maze cell so it's reachable on every terrain
+    private BlockPos getGoalColumn() {
+        int corner = (SIZE - 2) / MAZE_CELL_SIZE * MAZE_CELL_SIZE - 2;
+        return new BlockPos(corner, 0, corner);
+    }
+
+    private void generatePlains(Random random) {
+        for (int x = 0; x < SIZE; x++) {
+            for (int z = 0; z < SIZE; z++) {
+                BlockState[] column = fillColumn(x, z, SURFACE_Y, 4);
+                if (isNearStartOrGoal(x, z)) {
+                    continue;
+                }
+                float roll = random.nextFloat();
+                if (roll < 0.03f) {
+                    // a pillar the player has to walk around
+                    for (int y = 1; y <= 4; y++) {
+                        column[SURFACE_Y - BOTTOM_Y + y] = Blocks.OAK_LOG.getDefaultState();
+                    }
+                } else if (roll < 0.05f) {
+                    column[SURFACE_Y - BOTTOM_Y] = Blocks.WATER.getDefaultState();
+                }
+            }
+        }
+    }
+
+    private void generateHills(Random random) {
+        double phaseX = random.nextDouble() * Math.PI * 2;
+        double phaseZ = random.nextDouble() * Math.PI * 2;
+        double phaseXZ = random.nextDouble() * Math.PI * 2;
+        for (int x = 0; x < SIZE; x++) {
+            for (int z = 0; z < SIZE; z++) {
+                double height = 8 * Math.sin(x / 11.0 + phaseX) * Math.cos(z / 13.0 + phaseZ) +
+                        3 * Math.sin((x + z) / 7.0 + phaseXZ);
+                fillColumn(x, z, SURFACE_Y + (int) Math.round(height), 0);
+            }
+        }
+    }
+
+    private void generateMaze(Random random) {
+        int cells = (SIZE - 1) / MAZE_CELL_SIZE;
+        boolean[] open = new boolean[SIZE * SIZE];
+        boolean[] visited = new boolean[cells * cells];
+
+        // carve the maze with a randomized depth first search
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(0);
+        visited[0] = true;
+        int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        while (!stack.isEmpty()) {
+            int cell = stack.peek();
+            int cellX = cell % cells;
+            int cellZ = cell / cells;
+            carveCell(open, cellX, cellZ);
+
+            int[] candidates = new int[4];
+            int count = 0;
+            for (int i = 0; i < directions.length; i++) {
+                int nextX = cellX + directions[i][0];
+                int nextZ = cellZ + directions[i][1];
+                if (nextX >= 0 && nextX < cells && nextZ >= 0 && nextZ < cells && !visited[nextX + nextZ * cells]) {
+                    candidates[count++] = i;
+                }
+            }
+            if (count == 0) {
+                stack.pop();
+                continue;
+            }
+
+            int[] direction = directions[candidates[random.nextInt(count)]];
+            int nextX = cellX + direction[0];
+            int nextZ = cellZ + direction[1];
+            // remove the wall between the two cells
+            for (int i = 1; i < MAZE_CELL_SIZE; i++) {
+                int wallX = cellX * MAZE_CELL_SIZE + (direction[0] == 0 ? i : (direction[0] > 0 ? MAZE_CELL_SIZE : 0));
+                int wallZ = cellZ * MAZE_CELL_SIZE + (direction[1] == 0 ? i : (direction[1] > 0 ? MAZE_CELL_SIZE : 0));
+                open[wallX + wallZ * SIZE] = true;
+            }
+            visited[nextX + nextZ * cells] = true;
+            stack.push(nextX + nextZ * cells);
+        }
+
+        for (int x = 0; x < SIZE; x++) {
+            for (int z = 0; z < SIZE; z++) {
+                BlockState[] column = fillColumn(x, z, SURFACE_Y, 3);
+                if (!open[x + z * SIZE]) {
+                    for (int y = 1; y <= 3; y++) {
+                        column[SURFACE_Y - BOTTOM_Y + y] = Blocks.STONE_BRICKS.getDefaultState();
+                    }
+                }
+            }
+        }
+    }
+
+    private void carveCell(boolean[] open, int cellX, int cellZ) {
+        for (int x = 1; x < MAZE_CELL_SIZE; x++) {
+            for (int z = 1; z < MAZE_CELL_SIZE; z++) {
+                open[(cellX * MAZE_CELL_SIZE + x) + (cellZ * MAZE_CELL_SIZE + z) * SIZE] = true;
+            }
+        }
+    }
+}